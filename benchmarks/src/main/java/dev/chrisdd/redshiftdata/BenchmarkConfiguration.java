@@ -0,0 +1,35 @@
+package dev.chrisdd.redshiftdata;
+
+import dev.chrisdd.redshiftdata.config.RedshiftConfiguration;
+import software.amazon.awssdk.services.redshiftdata.RedshiftDataClient;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection settings handing out a fake client, each instance gets its own registry entry.
+ */
+class BenchmarkConfiguration extends RedshiftConfiguration {
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private final RedshiftDataClient client;
+    private final long id = IDS.incrementAndGet();
+
+    BenchmarkConfiguration(RedshiftDataClient client) throws SQLException {
+        super("jdbc:redshiftdata:@benchmark/dev?prefetchPages=0", new Properties());
+        this.client = client;
+    }
+
+    @Override
+    public RedshiftDataClient getClient() {
+        return this.client;
+    }
+
+    @Override
+    public List<Object> getClientKey() {
+        return Arrays.asList(BenchmarkConfiguration.class, this.id);
+    }
+}
@@ -0,0 +1,131 @@
+package dev.chrisdd.redshiftdata;
+
+import software.amazon.awssdk.services.redshiftdata.RedshiftDataClient;
+import software.amazon.awssdk.services.redshiftdata.model.*;
+import software.amazon.awssdk.services.redshiftdata.paginators.DescribeTableIterable;
+import software.amazon.awssdk.services.redshiftdata.paginators.GetStatementResultIterable;
+import software.amazon.awssdk.services.redshiftdata.paginators.ListTablesIterable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Data API client answering from prebuilt pages. Every statement finishes immediately and returns
+ * the same result unless one was registered for its sql, pages are chained through their index as next token.
+ * DescribeTable keeps the columns of the tables its pattern matches.
+ */
+class FakeRedshiftDataClient implements RedshiftDataClient {
+    private final List<GetStatementResultResponse> resultPages;
+    private final List<DescribeTableResponse> tablePages;
+    private final List<ListTablesResponse> listTablesPages;
+    private final Map<String, List<GetStatementResultResponse>> queries = new ConcurrentHashMap<>();
+    // statement id -> result of a registered query
+    private final Map<String, List<GetStatementResultResponse>> statements = new ConcurrentHashMap<>();
+
+    FakeRedshiftDataClient(List<GetStatementResultResponse> resultPages) {
+        this(resultPages, Collections.emptyList(), Collections.emptyList());
+    }
+
+    FakeRedshiftDataClient(List<GetStatementResultResponse> resultPages, List<DescribeTableResponse> tablePages, List<ListTablesResponse> listTablesPages) {
+        this.resultPages = resultPages;
+        this.tablePages = tablePages;
+        this.listTablesPages = listTablesPages;
+    }
+
+    /**
+     * Answers statements with exactly this sql from the given pages.
+     */
+    void registerQuery(String sql, List<GetStatementResultResponse> pages) {
+        this.queries.put(sql, pages);
+    }
+
+    private List<GetStatementResultResponse> resultPages(String id) {
+        return this.statements.getOrDefault(id, this.resultPages);
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public ExecuteStatementResponse executeStatement(ExecuteStatementRequest req) {
+        String id = UUID.randomUUID().toString();
+        List<GetStatementResultResponse> pages = this.queries.get(req.sql());
+        if (pages != null)
+            this.statements.put(id, pages);
+        return ExecuteStatementResponse.builder().id(id).build();
+    }
+
+    @Override
+    public DescribeStatementResponse describeStatement(DescribeStatementRequest req) {
+        List<GetStatementResultResponse> pages = this.resultPages(req.id());
+        long rows = pages.isEmpty() ? 0 : pages.get(0).totalNumRows();
+        return DescribeStatementResponse.builder()
+                .id(req.id())
+                .status(StatusString.FINISHED)
+                .hasResultSet(!pages.isEmpty())
+                .resultRows(rows)
+                .build();
+    }
+
+    @Override
+    public GetStatementResultResponse getStatementResult(GetStatementResultRequest req) {
+        List<GetStatementResultResponse> pages = this.resultPages(req.id());
+        int page = page(req.nextToken());
+        return pages.get(page).toBuilder().nextToken(next(page, pages.size())).build();
+    }
+
+    @Override
+    public DescribeTableResponse describeTable(DescribeTableRequest req) {
+        int page = page(req.nextToken());
+        DescribeTableResponse resp = this.tablePages.get(page);
+        if (req.table() != null) {
+            Pattern table = Pattern.compile(req.table().replace("%", ".*").replace("_", "."));
+            resp = resp.toBuilder()
+                    .columnList(resp.columnList().stream().filter(c -> table.matcher(c.tableName()).matches()).collect(Collectors.toList()))
+                    .build();
+        }
+        return resp.toBuilder().nextToken(next(page, this.tablePages.size())).build();
+    }
+
+    @Override
+    public ListTablesResponse listTables(ListTablesRequest req) {
+        int page = page(req.nextToken());
+        return this.listTablesPages.get(page).toBuilder().nextToken(next(page, this.listTablesPages.size())).build();
+    }
+
+    // the sdk interface leaves the paginators unimplemented
+
+    @Override
+    public GetStatementResultIterable getStatementResultPaginator(GetStatementResultRequest req) {
+        return new GetStatementResultIterable(this, req);
+    }
+
+    @Override
+    public DescribeTableIterable describeTablePaginator(DescribeTableRequest req) {
+        return new DescribeTableIterable(this, req);
+    }
+
+    @Override
+    public ListTablesIterable listTablesPaginator(ListTablesRequest req) {
+        return new ListTablesIterable(this, req);
+    }
+
+    private static int page(String token) {
+        return token == null ? 0 : Integer.parseInt(token);
+    }
+
+    private static String next(int page, int pages) {
+        return page + 1 < pages ? Integer.toString(page + 1) : null;
+    }
+}
@@ -0,0 +1,85 @@
+package dev.chrisdd.redshiftdata;
+
+import dev.chrisdd.redshiftdata.config.RedshiftConfiguration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result set metadata calls and the catalog calls of {@link RedshiftDatabaseMetadata} answered by a fake client,
+ * through the Data API catalog calls or the svv_* queries of {@code catalogMode=sql}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataBenchmark {
+    @Param({"10", "200"})
+    public int tables;
+
+    @Param({"16"})
+    public int columnsPerTable;
+
+    @Param({"API", "SQL"})
+    public String catalogMode;
+
+    private RedshiftResultSetMetadata resultMetadata;
+    private RedshiftConnection conn;
+    private DatabaseMetaData databaseMetadata;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        String[] types = SyntheticPages.columnTypes("mixed", this.columnsPerTable);
+        this.resultMetadata = new RedshiftResultSetMetadata(SyntheticPages.result(types, 0, 1, 0, 42).get(0));
+        FakeRedshiftDataClient client = new FakeRedshiftDataClient(Collections.emptyList(),
+                SyntheticPages.describeTable(this.tables, this.columnsPerTable, 1000),
+                SyntheticPages.listTables(this.tables));
+        client.registerQuery(RedshiftCatalogQuery.COLUMNS_SQL, SyntheticPages.svvColumns(this.tables, this.columnsPerTable, 1000));
+        client.registerQuery(RedshiftCatalogQuery.TABLES_SQL, SyntheticPages.svvTables(this.tables));
+        BenchmarkConfiguration config = new BenchmarkConfiguration(client);
+        config.setCatalogMode(RedshiftConfiguration.CatalogMode.valueOf(this.catalogMode));
+        this.conn = new RedshiftConnection(config);
+        this.databaseMetadata = this.conn.getMetaData();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        this.conn.close();
+    }
+
+    @Benchmark
+    public void resultSetMetadata(Blackhole bh) throws SQLException {
+        int n = this.resultMetadata.getColumnCount();
+        for (int c = 1; c <= n; c++) {
+            bh.consume(this.resultMetadata.getColumnType(c));
+            bh.consume(this.resultMetadata.getColumnTypeName(c));
+            bh.consume(this.resultMetadata.getColumnClassName(c));
+        }
+    }
+
+    @Benchmark
+    public int getColumns() throws SQLException {
+        return drain(this.databaseMetadata.getColumns(null, "public", null, null));
+    }
+
+    @Benchmark
+    public int getTables() throws SQLException {
+        return drain(this.databaseMetadata.getTables(null, "public", null, null));
+    }
+
+    private static int drain(ResultSet rs) throws SQLException {
+        int n = 0;
+        while (rs.next()) {
+            rs.getString(3);
+            n++;
+        }
+        return n;
+    }
+}
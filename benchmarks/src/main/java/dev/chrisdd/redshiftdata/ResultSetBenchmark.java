@@ -0,0 +1,114 @@
+package dev.chrisdd.redshiftdata;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a whole synthetic result, every invocation builds a fresh result set so the columnar
+ * conversion of the pages is part of the measured work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultSetBenchmark {
+    private static final int PAGE_SIZE = 1000;
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"4", "32"})
+    public int width;
+
+    @Param({"int8", "varchar", "timestamptz", "mixed"})
+    public String types;
+
+    @Param({"0.0", "0.2"})
+    public double nullRatio;
+
+    private List<GetStatementResultResponse> pages;
+    private String[] columnTypes;
+    private String[] labels;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.columnTypes = SyntheticPages.columnTypes(this.types, this.width);
+        this.pages = SyntheticPages.result(this.columnTypes, this.rows, PAGE_SIZE, this.nullRatio, 42);
+        this.labels = new String[this.width];
+        for (int c = 0; c < this.width; c++)
+            this.labels[c] = "COL_" + c;
+    }
+
+    private RedshiftResultSet open() throws SQLException {
+        return new RedshiftResultSet(null, this.pages.iterator());
+    }
+
+    @Benchmark
+    public int iterate() throws SQLException {
+        RedshiftResultSet rs = open();
+        int n = 0;
+        while (rs.next())
+            n++;
+        return n;
+    }
+
+    @Benchmark
+    public void getObject(Blackhole bh) throws SQLException {
+        RedshiftResultSet rs = open();
+        while (rs.next()) {
+            for (int c = 1; c <= this.width; c++)
+                bh.consume(rs.getObject(c));
+        }
+    }
+
+    @Benchmark
+    public void typedGetters(Blackhole bh) throws SQLException {
+        RedshiftResultSet rs = open();
+        String[] t = this.columnTypes;
+        while (rs.next()) {
+            for (int c = 1; c <= this.width; c++) {
+                switch (t[c - 1]) {
+                    case "int8":
+                        bh.consume(rs.getLong(c));
+                        break;
+                    case "float8":
+                        bh.consume(rs.getDouble(c));
+                        break;
+                    case "bool":
+                        bh.consume(rs.getBoolean(c));
+                        break;
+                    case "numeric":
+                        bh.consume(rs.getBigDecimal(c));
+                        break;
+                    case "timestamptz":
+                        bh.consume(rs.getTimestamp(c));
+                        break;
+                    case "date":
+                        bh.consume(rs.getDate(c));
+                        break;
+                    default:
+                        bh.consume(rs.getString(c));
+                }
+            }
+        }
+    }
+
+    /**
+     * reads by label in a different case than the result, like most orms do
+     */
+    @Benchmark
+    public void getStringByLabel(Blackhole bh) throws SQLException {
+        RedshiftResultSet rs = open();
+        while (rs.next()) {
+            for (String label : this.labels)
+                bh.consume(rs.getString(label));
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package dev.chrisdd.redshiftdata;
+
+import software.amazon.awssdk.services.redshiftdata.model.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds Data API responses shaped like the real ones: the typeName/field kind pairs redshift reports,
+ * nulls spread at random and results split in pages. Seeded, so every run sees the same data.
+ */
+final class SyntheticPages {
+    /**
+     * column types by name, "mixed" cycles through all of them
+     */
+    static final String[] TYPES = {"int8", "float8", "bool", "varchar", "numeric", "timestamptz", "date"};
+
+    private SyntheticPages() {
+    }
+
+    static String[] columnTypes(String types, int width) {
+        String[] columns = new String[width];
+        for (int c = 0; c < width; c++)
+            columns[c] = types.equals("mixed") ? TYPES[c % TYPES.length] : types;
+        return columns;
+    }
+
+    static List<ColumnMetadata> columns(String[] types) {
+        List<ColumnMetadata> columns = new ArrayList<>(types.length);
+        for (int c = 0; c < types.length; c++) {
+            columns.add(ColumnMetadata.builder()
+                    .name("col_" + c)
+                    .label("col_" + c)
+                    .typeName(types[c])
+                    .length(0)
+                    .precision(types[c].equals("numeric") ? 18 : 0)
+                    .scale(types[c].equals("numeric") ? 2 : 0)
+                    .nullable(1)
+                    .schemaName("public")
+                    .tableName("synthetic")
+                    .build());
+        }
+        return columns;
+    }
+
+    static List<GetStatementResultResponse> result(String[] types, int rows, int pageSize, double nullRatio, long seed) {
+        Random random = new Random(seed);
+        List<ColumnMetadata> metadata = columns(types);
+        List<GetStatementResultResponse> pages = new ArrayList<>();
+        for (int start = 0; start < rows || pages.isEmpty(); start += pageSize) {
+            int n = Math.min(pageSize, rows - start);
+            List<List<Field>> records = new ArrayList<>(n);
+            for (int r = 0; r < n; r++) {
+                List<Field> row = new ArrayList<>(types.length);
+                for (String type : types)
+                    row.add(random.nextDouble() < nullRatio ? Field.fromIsNull(true) : field(type, random));
+                records.add(row);
+            }
+            GetStatementResultResponse.Builder page = GetStatementResultResponse.builder()
+                    .records(records)
+                    .totalNumRows((long) rows);
+            // the Data API only sends the column metadata with the first page
+            if (pages.isEmpty())
+                page.columnMetadata(metadata);
+            pages.add(page.build());
+        }
+        return pages;
+    }
+
+    static Field field(String type, Random random) {
+        switch (type) {
+            case "int8":
+                return Field.fromLongValue(random.nextLong());
+            case "float8":
+                return Field.fromDoubleValue(random.nextDouble() * 1e6);
+            case "bool":
+                return Field.fromBooleanValue(random.nextBoolean());
+            case "numeric":
+                return Field.fromStringValue(String.format("%d.%02d", random.nextInt(1_000_000), random.nextInt(100)));
+            case "timestamptz":
+                return Field.fromStringValue(timestamp(random));
+            case "date":
+                return Field.fromStringValue(timestamp(random).substring(0, 10));
+            default:
+                return Field.fromStringValue(Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+        }
+    }
+
+    /**
+     * @return a value like "2023-10-23 09:26:38.779304+00" with a varying number of fraction digits
+     */
+    static String timestamp(Random random) {
+        String fraction = Integer.toString(1_000_000 + random.nextInt(1_000_000)).substring(1, 2 + random.nextInt(6));
+        return String.format("%04d-%02d-%02d %02d:%02d:%02d.%s+00",
+                2000 + random.nextInt(30), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                random.nextInt(24), random.nextInt(60), random.nextInt(60), fraction);
+    }
+
+    static List<DescribeTableResponse> describeTable(int tables, int columnsPerTable, int pageSize) {
+        List<ColumnMetadata> all = new ArrayList<>();
+        for (int t = 0; t < tables; t++) {
+            for (int c = 0; c < columnsPerTable; c++) {
+                all.add(ColumnMetadata.builder()
+                        .name("col_" + c)
+                        .typeName(TYPES[c % TYPES.length])
+                        .length(256)
+                        .precision(18)
+                        .scale(0)
+                        .nullable(1)
+                        .schemaName("public")
+                        .tableName("table_" + t)
+                        .build());
+            }
+        }
+        List<DescribeTableResponse> pages = new ArrayList<>();
+        for (int start = 0; start < all.size() || pages.isEmpty(); start += pageSize) {
+            pages.add(DescribeTableResponse.builder()
+                    .tableName("")
+                    .columnList(all.subList(start, Math.min(all.size(), start + pageSize)))
+                    .build());
+        }
+        return pages;
+    }
+
+    /**
+     * Result of {@link RedshiftCatalogQuery#COLUMNS_SQL} over the tables of {@link #describeTable}.
+     */
+    static List<GetStatementResultResponse> svvColumns(int tables, int columnsPerTable, int pageSize) {
+        String[] names = {"table_cat", "table_schem", "table_name", "column_name", "data_type", "type_name", "column_size",
+                "buffer_length", "decimal_digits", "num_prec_radix", "nullable", "remarks", "column_def", "sql_data_type",
+                "sql_datetime_sub", "char_octet_length", "ordinal_position", "is_nullable", "scope_catalog", "scope_schema",
+                "scope_table", "source_data_type", "is_autoincrement", "is_generatedcolumn"};
+        String[] types = {"name", "name", "name", "name", "int4", "varchar", "int4", "int4", "int4", "int4", "int4", "varchar",
+                "varchar", "int4", "int4", "int4", "int4", "varchar", "varchar", "varchar", "varchar", "int2", "varchar", "varchar"};
+        String[] svvTypes = {"bigint", "double precision", "boolean", "character varying", "numeric", "timestamp with time zone", "date"};
+        List<List<Field>> records = new ArrayList<>();
+        for (int t = 0; t < tables; t++) {
+            for (int c = 0; c < columnsPerTable; c++) {
+                String type = svvTypes[c % svvTypes.length];
+                records.add(Arrays.asList(
+                        Field.fromStringValue("dev"),
+                        Field.fromStringValue("public"),
+                        Field.fromStringValue("table_" + t),
+                        Field.fromStringValue("col_" + c),
+                        Field.fromLongValue(0L),
+                        Field.fromStringValue(type),
+                        Field.fromLongValue(type.equals("character varying") ? 256L : 18L),
+                        Field.fromIsNull(true),
+                        Field.fromLongValue(0L),
+                        Field.fromLongValue(10L),
+                        Field.fromLongValue(1L),
+                        Field.fromIsNull(true),
+                        Field.fromIsNull(true),
+                        Field.fromIsNull(true),
+                        Field.fromIsNull(true),
+                        type.equals("character varying") ? Field.fromLongValue(256L) : Field.fromIsNull(true),
+                        Field.fromLongValue((long) c + 1),
+                        Field.fromStringValue("YES"),
+                        Field.fromIsNull(true),
+                        Field.fromIsNull(true),
+                        Field.fromIsNull(true),
+                        Field.fromIsNull(true),
+                        Field.fromStringValue("NO"),
+                        Field.fromStringValue("NO")));
+            }
+        }
+        return catalogResult(names, types, records, pageSize);
+    }
+
+    /**
+     * Result of {@link RedshiftCatalogQuery#TABLES_SQL} over the tables of {@link #listTables}.
+     */
+    static List<GetStatementResultResponse> svvTables(int tables) {
+        String[] names = {"table_cat", "table_schem", "table_name", "table_type", "remarks", "type_cat", "type_schem",
+                "type_name", "self_referencing_col_name", "ref_generation"};
+        String[] types = {"name", "name", "name", "varchar", "varchar", "varchar", "varchar", "varchar", "varchar", "varchar"};
+        List<List<Field>> records = new ArrayList<>(tables);
+        for (int t = 0; t < tables; t++) {
+            List<Field> row = new ArrayList<>(Arrays.asList(
+                    Field.fromStringValue("dev"),
+                    Field.fromStringValue("public"),
+                    Field.fromStringValue("table_" + t),
+                    Field.fromStringValue("TABLE")));
+            while (row.size() < names.length)
+                row.add(Field.fromIsNull(true));
+            records.add(row);
+        }
+        return catalogResult(names, types, records, 1000);
+    }
+
+    private static List<GetStatementResultResponse> catalogResult(String[] names, String[] types, List<List<Field>> records, int pageSize) {
+        List<ColumnMetadata> metadata = new ArrayList<>(names.length);
+        for (int c = 0; c < names.length; c++)
+            metadata.add(ColumnMetadata.builder().name(names[c]).label(names[c]).typeName(types[c]).nullable(1).build());
+        List<GetStatementResultResponse> pages = new ArrayList<>();
+        for (int start = 0; start < records.size() || pages.isEmpty(); start += pageSize) {
+            GetStatementResultResponse.Builder page = GetStatementResultResponse.builder()
+                    .records(records.subList(start, Math.min(records.size(), start + pageSize)))
+                    .totalNumRows((long) records.size());
+            if (pages.isEmpty())
+                page.columnMetadata(metadata);
+            pages.add(page.build());
+        }
+        return pages;
+    }
+
+    static List<ListTablesResponse> listTables(int tables) {
+        List<TableMember> members = new ArrayList<>(tables);
+        for (int t = 0; t < tables; t++)
+            members.add(TableMember.builder().schema("public").name("table_" + t).type("TABLE").build());
+        return Collections.singletonList(ListTablesResponse.builder().tables(members).build());
+    }
+}
@@ -0,0 +1,110 @@
+package dev.chrisdd.redshiftdata;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RedshiftDateTimeParser} against the {@link DateTimeFormatter} way of reading the same values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemporalParsingBenchmark {
+    private static final int VALUES = 1024;
+    // "2023-10-23 09:26:38.779304+00"
+    private static final DateTimeFormatter FORMATTER = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .appendLiteral(' ')
+            .appendPattern("HH:mm:ss")
+            .optionalStart()
+            .appendFraction(ChronoField.NANO_OF_SECOND, 1, 9, true)
+            .optionalEnd()
+            .optionalStart()
+            .appendPattern("X")
+            .optionalEnd()
+            .toFormatter();
+
+    private String[] strings;
+    private char[][] chars;
+    private String[] dates;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        this.strings = new String[VALUES];
+        this.chars = new char[VALUES][];
+        this.dates = new String[VALUES];
+        for (int k = 0; k < VALUES; k++) {
+            this.strings[k] = SyntheticPages.timestamp(random);
+            this.chars[k] = this.strings[k].toCharArray();
+            this.dates[k] = this.strings[k].substring(0, 10);
+        }
+    }
+
+    private int next() {
+        return this.i = (this.i + 1) & (VALUES - 1);
+    }
+
+    @Benchmark
+    public Timestamp formatterTimestamp() {
+        return Timestamp.valueOf(LocalDateTime.parse(this.strings[next()], FORMATTER));
+    }
+
+    @Benchmark
+    public Timestamp parserTimestamp() throws SQLException {
+        char[] b = this.chars[next()];
+        return RedshiftDateTimeParser.toTimestamp(b, 0, b.length);
+    }
+
+    @Benchmark
+    public OffsetDateTime formatterOffsetDateTime() {
+        return OffsetDateTime.parse(this.strings[next()], FORMATTER);
+    }
+
+    @Benchmark
+    public OffsetDateTime parserOffsetDateTime() throws SQLException {
+        char[] b = this.chars[next()];
+        return RedshiftDateTimeParser.toOffsetDateTime(b, 0, b.length);
+    }
+
+    @Benchmark
+    public long formatterEpochMicros() {
+        OffsetDateTime t = OffsetDateTime.parse(this.strings[next()], FORMATTER);
+        return t.toEpochSecond() * 1_000_000 + t.getNano() / 1000;
+    }
+
+    @Benchmark
+    public long parserEpochMicros() throws SQLException {
+        char[] b = this.chars[next()];
+        return RedshiftDateTimeParser.epochMicros(b, 0, b.length);
+    }
+
+    @Benchmark
+    public java.sql.Date formatterDate() {
+        return java.sql.Date.valueOf(LocalDate.parse(this.dates[next()], DateTimeFormatter.ISO_LOCAL_DATE));
+    }
+
+    /**
+     * includes the toCharArray copy the decoders pay for values that are not in a string column
+     */
+    @Benchmark
+    public void parserDate(Blackhole bh) throws SQLException {
+        char[] b = this.dates[next()].toCharArray();
+        bh.consume(RedshiftDateTimeParser.toDate(b, 0, b.length));
+    }
+}
@@ -0,0 +1,101 @@
+package dev.chrisdd.redshiftdata;
+
+import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementResponse;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Learns the runtime of every sql fingerprint from the createdAt/updatedAt (or duration) of its
+ * finished statements and concentrates the polls around the predicted finish time:
+ * sleep until shortly before it, poll densely inside the expected window, then back off.
+ * Unknown fingerprints use {@link BackoffPollStrategy} until enough samples are seen.
+ * Statistics are kept for a bounded number of fingerprints, least recently used are dropped.
+ */
+public class AdaptivePollStrategy implements PollStrategy {
+    static final int DEFAULT_CAPACITY = 1024;
+    static final int MIN_SAMPLES = 2;
+    // weight of the newest sample in the moving mean/variance
+    static final double ALPHA = 0.2;
+
+    private final PollStrategy fallback = new BackoffPollStrategy();
+    private final Map<String, RuntimeStats> stats;
+
+    public AdaptivePollStrategy() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public AdaptivePollStrategy(int capacity) {
+        this.stats = new LinkedHashMap<String, RuntimeStats>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RuntimeStats> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public long nextDelay(String fingerprint, int attempt, long elapsed) {
+        RuntimeStats s;
+        synchronized (this.stats) {
+            s = this.stats.get(fingerprint);
+        }
+        if (s == null || s.samples < MIN_SAMPLES)
+            return this.fallback.nextDelay(fingerprint, attempt, elapsed);
+        double mean;
+        double deviation;
+        synchronized (s) {
+            mean = s.mean;
+            deviation = Math.sqrt(s.variance);
+        }
+        long early = (long) (mean - deviation);
+        long late = (long) (mean + 2 * deviation);
+        long delay;
+        if (elapsed < early)
+            delay = early - elapsed;
+        else if (elapsed < late)
+            delay = (long) (deviation / 4);
+        else
+            delay = (elapsed - (long) mean) / 2;
+        return Math.max(BackoffPollStrategy.MIN_POLL_INTERVAL, Math.min(delay, BackoffPollStrategy.MAX_POLL_INTERVAL));
+    }
+
+    @Override
+    public void finished(String fingerprint, DescribeStatementResponse resp) {
+        long runtime;
+        if (resp.createdAt() != null && resp.updatedAt() != null)
+            runtime = Duration.between(resp.createdAt(), resp.updatedAt()).toMillis();
+        else if (resp.duration() != null)
+            runtime = resp.duration() / 1_000_000;
+        else
+            return;
+        RuntimeStats s;
+        synchronized (this.stats) {
+            s = this.stats.computeIfAbsent(fingerprint, k -> new RuntimeStats());
+        }
+        s.add(runtime);
+    }
+
+    int size() {
+        synchronized (this.stats) {
+            return this.stats.size();
+        }
+    }
+
+    private static class RuntimeStats {
+        int samples;
+        double mean;
+        double variance;
+
+        synchronized void add(long runtime) {
+            if (this.samples++ == 0) {
+                this.mean = runtime;
+                return;
+            }
+            double diff = runtime - this.mean;
+            this.mean += ALPHA * diff;
+            this.variance = (1 - ALPHA) * (this.variance + ALPHA * diff * diff);
+        }
+    }
+}
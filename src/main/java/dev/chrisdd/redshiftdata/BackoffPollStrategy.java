@@ -0,0 +1,16 @@
+package dev.chrisdd.redshiftdata;
+
+/**
+ * Fixed exponential backoff, starts at 10ms and doubles up to 2s.
+ */
+public class BackoffPollStrategy implements PollStrategy {
+    static final int MIN_POLL_INTERVAL = 5;
+    static final int MAX_POLL_INTERVAL = 2000;
+
+    @Override
+    public long nextDelay(String fingerprint, int attempt, long elapsed) {
+        if (attempt >= 9)
+            return MAX_POLL_INTERVAL;
+        return Math.min((long) MIN_POLL_INTERVAL << (attempt + 1), MAX_POLL_INTERVAL);
+    }
+}
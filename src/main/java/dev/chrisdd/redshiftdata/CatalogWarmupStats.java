@@ -0,0 +1,27 @@
+package dev.chrisdd.redshiftdata;
+
+/**
+ * Counters of the background catalog warm-ups, see the {@code warmupSchemas} property. They cover every
+ * warm-up of the driver and are obtained with {@link RedshiftConnection#getCatalogWarmupStats()}.
+ */
+public interface CatalogWarmupStats {
+
+    /**
+     * @return warm-ups started so far
+     */
+    long getStarted();
+
+    long getFinished();
+
+    long getFailed();
+
+    /**
+     * @return schemas whose table list was loaded
+     */
+    long getSchemas();
+
+    /**
+     * @return tables listed
+     */
+    long getTables();
+}
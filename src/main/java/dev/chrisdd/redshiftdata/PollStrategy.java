@@ -0,0 +1,26 @@
+package dev.chrisdd.redshiftdata;
+
+import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementResponse;
+
+/**
+ * Decides how long the statement poller waits between status checks of a running statement.
+ * Implementations are shared by every connection using them, so they must be thread safe.
+ * A custom implementation is selected with the {@code pollStrategy} property set to its class name,
+ * it needs a public no-arg constructor.
+ */
+public interface PollStrategy {
+
+    /**
+     * @param fingerprint normalized sql of the statement, literals and whitespace stripped
+     * @param attempt     number of polls already done for this statement
+     * @param elapsed     milliseconds since the statement was submitted
+     * @return milliseconds to wait before the next poll
+     */
+    long nextDelay(String fingerprint, int attempt, long elapsed);
+
+    /**
+     * Called once with the terminal describe response of every statement that finished successfully.
+     */
+    default void finished(String fingerprint, DescribeStatementResponse resp) {
+    }
+}
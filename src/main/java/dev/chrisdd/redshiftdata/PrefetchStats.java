@@ -0,0 +1,28 @@
+package dev.chrisdd.redshiftdata;
+
+/**
+ * Progress of the background page download of a result set, see the {@code prefetchPages} property.
+ * Obtained with {@code resultSet.unwrap(PrefetchStats.class)}, results read without prefetching report zeros.
+ */
+public interface PrefetchStats {
+
+    /**
+     * @return pages downloaded so far
+     */
+    int getFetchedPages();
+
+    /**
+     * @return pages handed to the result set so far
+     */
+    int getReadPages();
+
+    /**
+     * @return how many times the reader had to wait for a page that was not downloaded yet
+     */
+    int getStalls();
+
+    /**
+     * @return total time spent in those waits
+     */
+    long getStallNanos();
+}
@@ -0,0 +1,170 @@
+package dev.chrisdd.redshiftdata;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Least recently used cache with a time to live per entry and a bound on the total weight in bytes.
+ * Concurrent loads of the same missing key share one loader call. A value weighing more than a quarter
+ * of the bound, or less than zero, is handed to its callers without being kept.
+ */
+final class RedshiftCache<K, V> {
+    interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long bytes;
+        final long expiresAt;
+
+        Entry(V value, long bytes, long expiresAt) {
+            this.value = value;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    // guarded by this, in access order
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    RedshiftCache(long maxBytes, ToLongFunction<V> weigher) {
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    /**
+     * @return the live value of the key, loading it if there is none
+     */
+    V get(K key, long ttl, Loader<V> loader) throws SQLException {
+        V value = this.getIfPresent(key);
+        if (value != null)
+            return value;
+        CompletableFuture<V> f = new CompletableFuture<>();
+        CompletableFuture<V> running = this.loading.putIfAbsent(key, f);
+        if (running != null) {
+            this.hits.incrementAndGet();
+            return await(running);
+        }
+        try {
+            value = this.peek(key);
+            if (value == null) {
+                this.misses.incrementAndGet();
+                value = loader.load();
+                this.put(key, value, ttl);
+            }
+            f.complete(value);
+            return value;
+        } catch (SQLException | RuntimeException e) {
+            f.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.loading.remove(key, f);
+        }
+    }
+
+    V getIfPresent(K key) {
+        V value = this.peek(key);
+        if (value != null)
+            this.hits.incrementAndGet();
+        return value;
+    }
+
+    private synchronized V peek(K key) {
+        Entry<V> e = this.entries.get(key);
+        if (e == null)
+            return null;
+        if (e.expiresAt <= System.currentTimeMillis()) {
+            this.remove(key);
+            return null;
+        }
+        return e.value;
+    }
+
+    void put(K key, V value, long ttl) {
+        long weight = this.weigher.applyAsLong(value);
+        if (ttl <= 0 || weight < 0 || weight > this.maxBytes / 4)
+            return;
+        synchronized (this) {
+            this.remove(key);
+            long now = System.currentTimeMillis();
+            // Long.MAX_VALUE keeps the entry until it is evicted
+            long expiresAt = ttl > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + ttl;
+            this.entries.put(key, new Entry<>(value, weight, expiresAt));
+            this.bytes += weight;
+            Iterator<Map.Entry<K, Entry<V>>> eldest = this.entries.entrySet().iterator();
+            while (this.bytes > this.maxBytes && eldest.hasNext()) {
+                this.bytes -= eldest.next().getValue().bytes;
+                eldest.remove();
+            }
+        }
+    }
+
+    synchronized void invalidate(K key) {
+        this.remove(key);
+    }
+
+    synchronized void invalidateIf(Predicate<K> matches) {
+        Iterator<Map.Entry<K, Entry<V>>> it = this.entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, Entry<V>> e = it.next();
+            if (matches.test(e.getKey())) {
+                this.bytes -= e.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        this.entries.clear();
+        this.bytes = 0;
+    }
+
+    private void remove(K key) {
+        Entry<V> e = this.entries.remove(key);
+        if (e != null)
+            this.bytes -= e.bytes;
+    }
+
+    synchronized int size() {
+        return this.entries.size();
+    }
+
+    synchronized long getBytes() {
+        return this.bytes;
+    }
+
+    long getHits() {
+        return this.hits.get();
+    }
+
+    long getMisses() {
+        return this.misses.get();
+    }
+
+    private static <V> V await(CompletableFuture<V> f) throws SQLException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw RedshiftConnection.asSQLException(e.getCause());
+        }
+    }
+}
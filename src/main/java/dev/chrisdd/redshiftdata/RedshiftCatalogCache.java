@@ -0,0 +1,317 @@
+package dev.chrisdd.redshiftdata;
+
+import dev.chrisdd.redshiftdata.config.RedshiftConfiguration;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.redshiftdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.redshiftdata.model.DescribeTableResponse;
+import software.amazon.awssdk.services.redshiftdata.model.TableMember;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Driver-wide cache of the catalog listings behind {@link RedshiftDatabaseMetadata}, for connections with a
+ * {@code catalogCacheTtl}. Listings are keyed by the connection's target and user and the schema and table
+ * patterns, concurrent requests for the same listing share one pass over the Data API pages.
+ * Ddl run through the driver drops the listings of its target, other changes show after the ttl.
+ */
+class RedshiftCatalogCache {
+    static final String MAX_BYTES_PROPERTY = "redshiftdata.catalogCacheMaxBytes";
+    static final String METADATA_THREADS_PROPERTY = "redshiftdata.metadataThreads";
+
+    private static final RedshiftCatalogCache INSTANCE = new RedshiftCatalogCache(Long.getLong(MAX_BYTES_PROPERTY, 16L << 20));
+
+    private static final class Listing {
+        final List<?> items;
+        final long bytes;
+
+        Listing(List<?> items, long bytes) {
+            this.items = items;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final int MAX_THROTTLE_RETRIES = 6;
+
+    private final RedshiftCache<List<Object>, Listing> cache;
+    // throttled calls seen, the describe fan-out narrows its window when this moves
+    private final AtomicInteger throttles = new AtomicInteger();
+    private ExecutorService executor;
+
+    static RedshiftCatalogCache getInstance() {
+        return INSTANCE;
+    }
+
+    RedshiftCatalogCache(long maxBytes) {
+        this.cache = new RedshiftCache<>(maxBytes, l -> l.bytes);
+    }
+
+    /**
+     * @return true for statements that change the catalog
+     */
+    static boolean isDdl(String keyword) {
+        switch (keyword) {
+            case "create":
+            case "alter":
+            case "drop":
+            case "comment":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    List<String> databases(RedshiftConnection conn) throws SQLException {
+        return this.load(conn, "databases", null, null,
+                () -> conn.listDatabase().stream().flatMap(r -> r.databases().stream()).collect(Collectors.toList()),
+                RedshiftCatalogCache::weigh);
+    }
+
+    List<String> schemas(RedshiftConnection conn, String schemaPattern) throws SQLException {
+        String schemas = pattern(schemaPattern);
+        return this.load(conn, "schemas", schemas, null,
+                () -> conn.listSchemas(schemas).stream().flatMap(r -> r.schemas().stream()).collect(Collectors.toList()),
+                RedshiftCatalogCache::weigh);
+    }
+
+    List<TableMember> tables(RedshiftConnection conn, String schemaPattern, String tablePattern) throws SQLException {
+        String schemas = pattern(schemaPattern);
+        String tables = pattern(tablePattern);
+        return this.load(conn, "tables", schemas, tables,
+                () -> conn.listTables(schemas, tables).stream().flatMap(r -> r.tables().stream()).collect(Collectors.toList()),
+                t -> 32 + weigh(t.name()) + weigh(t.schema()) + weigh(t.type()));
+    }
+
+    /**
+     * Columns of the matching tables ordered by schema, table and position. Exact names are described directly,
+     * patterns are resolved to tables first and those described concurrently, up to {@code metadataConcurrency}
+     * at once and fewer while the service throttles. {@code \} escapes a wildcard. Tools commonly pass table
+     * names unescaped, so names whose only wildcard is {@code _} are described as written first and only listed
+     * when no such table exists, a table that shares the name is then all the pattern returns.
+     */
+    List<ColumnMetadata> columns(RedshiftConnection conn, String schemaPattern, String tablePattern) throws SQLException {
+        String schemas = pattern(schemaPattern);
+        String tables = pattern(tablePattern);
+        if (!isPattern(schemas) && !isPattern(tables))
+            return this.describe(conn, unescape(schemas), unescape(tables));
+        if (schemas != null && tables != null && !hasWildcard(schemas, '%') && !hasWildcard(tables, '%')) {
+            List<ColumnMetadata> exact = this.describe(conn, unescape(schemas), unescape(tables));
+            if (!exact.isEmpty())
+                return exact;
+        }
+        // a kind of its own, the describes of the fan-out load under "columns" and would wait on this one
+        return this.load(conn, "columnsPattern", schemas, tables,
+                () -> this.describeAll(conn, this.tables(conn, schemas, tables)),
+                RedshiftCatalogCache::weigh);
+    }
+
+    private List<ColumnMetadata> describe(RedshiftConnection conn, String schema, String table) throws SQLException {
+        return this.load(conn, "columns", schema, table, () -> withRetry(() -> {
+            List<ColumnMetadata> columns = new ArrayList<>();
+            Iterator<DescribeTableResponse> pages = conn.describeTable(schema, table);
+            while (pages.hasNext())
+                columns.addAll(pages.next().columnList());
+            return columns;
+        }), RedshiftCatalogCache::weigh);
+    }
+
+    private List<ColumnMetadata> describeAll(RedshiftConnection conn, List<TableMember> tables) throws SQLException {
+        List<TableMember> sorted = new ArrayList<>(tables);
+        sorted.sort(Comparator.comparing(TableMember::schema, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(TableMember::name, Comparator.nullsFirst(Comparator.<String>naturalOrder())));
+        List<List<ColumnMetadata>> described = new ArrayList<>(Collections.nCopies(sorted.size(), null));
+        ExecutorCompletionService<Integer> completion = new ExecutorCompletionService<>(this.getExecutor());
+        int limit = Math.max(1, conn.getConfig().getMetadataConcurrency());
+        int window = limit;
+        int seenThrottles = this.throttles.get();
+        List<Future<Integer>> submitted = new ArrayList<>();
+        int next = 0;
+        int running = 0;
+        try {
+            while (next < sorted.size() || running > 0) {
+                while (next < sorted.size() && running < window) {
+                    int i = next++;
+                    TableMember t = sorted.get(i);
+                    submitted.add(completion.submit(() -> {
+                        described.set(i, this.describe(conn, t.schema(), t.name()));
+                        return i;
+                    }));
+                    running++;
+                }
+                Future<Integer> done = completion.take();
+                running--;
+                done.get();
+                // additive increase, halve the window when some call got throttled meanwhile
+                int throttled = this.throttles.get();
+                if (throttled != seenThrottles)
+                    window = Math.max(1, window / 2);
+                else if (window < limit)
+                    window++;
+                seenThrottles = throttled;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while describing tables", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw RedshiftConnection.asSQLException(e.getCause());
+        } finally {
+            // describes not started yet are dropped, running ones finish into the cache where other callers may wait
+            for (Future<Integer> f : submitted)
+                f.cancel(false);
+        }
+        List<ColumnMetadata> columns = new ArrayList<>();
+        for (List<ColumnMetadata> c : described)
+            columns.addAll(c);
+        return columns;
+    }
+
+    /**
+     * Repeats a throttled call with exponential backoff, on top of the retries of the sdk.
+     */
+    private <T> T withRetry(Supplier<T> call) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return call.get();
+            } catch (SdkServiceException e) {
+                if (!e.isThrottlingException() || attempt >= MAX_THROTTLE_RETRIES)
+                    throw e;
+                this.throttles.incrementAndGet();
+                try {
+                    Thread.sleep(Math.min(100L << attempt, 5000L) + ThreadLocalRandom.current().nextLong(100));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * A missing, empty or {@code %} pattern all match everything, they share one listing and are sent as none.
+     */
+    private static String pattern(String s) {
+        return s == null || s.isEmpty() || s.equals("%") ? null : s;
+    }
+
+    private static boolean isPattern(String s) {
+        return s == null || hasWildcard(s, '%') || hasWildcard(s, '_');
+    }
+
+    /**
+     * @return true if the pattern holds the wildcard without the {@code \} escape before it
+     */
+    private static boolean hasWildcard(String s, char wildcard) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\')
+                i++;
+            else if (c == wildcard)
+                return true;
+        }
+        return false;
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0)
+            return s;
+        StringBuilder b = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length())
+                c = s.charAt(++i);
+            b.append(c);
+        }
+        return b.toString();
+    }
+
+    private static long weigh(ColumnMetadata c) {
+        return 160 + weigh(c.name()) + weigh(c.typeName()) + weigh(c.schemaName()) + weigh(c.tableName()) + weigh(c.columnDefault());
+    }
+
+    /**
+     * Threads shared by the describe fan-outs of all connections, at most {@code redshiftdata.metadataThreads},
+     * further describes queue. A describe only waits on a load of the same table that is already running, never
+     * on a queued task, so a full pool delays the fan-outs but cannot deadlock them.
+     */
+    private synchronized ExecutorService getExecutor() {
+        if (this.executor == null) {
+            AtomicInteger counter = new AtomicInteger();
+            int threads = Math.max(1, Integer.getInteger(METADATA_THREADS_PROPERTY, 32));
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "redshiftdata-metadata-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            this.executor = executor;
+        }
+        return this.executor;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> load(RedshiftConnection conn, String kind, String schemaPattern, String tablePattern,
+                             RedshiftCache.Loader<List<T>> loader, ToLongFunction<T> weigher) throws SQLException {
+        RedshiftConfiguration config = conn.getConfig();
+        List<Object> key = Arrays.asList(config.getTargetKey(), kind, schemaPattern, tablePattern);
+        Listing listing = this.cache.get(key, config.getCatalogCacheTtl(), () -> {
+            List<T> items = loader.load();
+            long bytes = 64;
+            for (T item : items)
+                bytes += weigher.applyAsLong(item);
+            return new Listing(Collections.unmodifiableList(items), bytes);
+        });
+        return (List<T>) listing.items;
+    }
+
+    private static long weigh(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
+    /**
+     * Drops every listing of the target the configuration points to.
+     */
+    void invalidate(RedshiftConfiguration config) {
+        List<Object> target = config.getTargetKey();
+        this.cache.invalidateIf(key -> key.get(0).equals(target));
+    }
+
+    void clear() {
+        this.cache.clear();
+    }
+
+    int size() {
+        return this.cache.size();
+    }
+
+    long getBytes() {
+        return this.cache.getBytes();
+    }
+
+    long getHits() {
+        return this.cache.getHits();
+    }
+
+    long getMisses() {
+        return this.cache.getMisses();
+    }
+}
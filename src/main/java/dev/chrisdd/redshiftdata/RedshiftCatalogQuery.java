@@ -0,0 +1,119 @@
+package dev.chrisdd.redshiftdata;
+
+import software.amazon.awssdk.services.redshiftdata.model.Field;
+import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
+import software.amazon.awssdk.services.redshiftdata.model.SqlParameter;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+
+/**
+ * Catalog calls of {@link RedshiftDatabaseMetadata} for connections in {@code catalogMode=sql}, one query against
+ * the svv_* system views each instead of a ListSchemas, ListTables or DescribeTable call per page and table.
+ * The queries return the columns jdbc asks for, their result streams through a {@link RedshiftResultSet}.
+ */
+final class RedshiftCatalogQuery {
+    static final String SCHEMAS_SQL = "select schema_name as table_schem, database_name as table_catalog"
+            + " from svv_all_schemas"
+            + " where database_name = current_database() and schema_name like :schema"
+            + " order by 1";
+    static final String TABLES_SQL = "select current_database() as table_cat, table_schema as table_schem, table_name,"
+            + " case table_type when 'BASE TABLE' then 'TABLE' else table_type end as table_type, remarks,"
+            + " null::varchar as type_cat, null::varchar as type_schem, null::varchar as type_name,"
+            + " null::varchar as self_referencing_col_name, null::varchar as ref_generation"
+            + " from svv_tables"
+            + " where table_catalog = current_database() and table_schema like :schema and table_name like :table"
+            + " order by 4, 2, 3";
+    // data_type is filled in from type_name while the pages are read
+    static final String COLUMNS_SQL = "select current_database() as table_cat, table_schema as table_schem, table_name, column_name,"
+            + " 0 as data_type, data_type as type_name,"
+            + " coalesce(character_maximum_length, numeric_precision, 0) as column_size, null::integer as buffer_length,"
+            + " coalesce(numeric_scale, 0) as decimal_digits, numeric_precision_radix as num_prec_radix,"
+            + " case is_nullable when 'YES' then 1 else 0 end as nullable, remarks, column_default as column_def,"
+            + " null::integer as sql_data_type, null::integer as sql_datetime_sub,"
+            + " character_maximum_length as char_octet_length, ordinal_position, is_nullable,"
+            + " null::varchar as scope_catalog, null::varchar as scope_schema, null::varchar as scope_table,"
+            + " null::smallint as source_data_type, 'NO' as is_autoincrement, 'NO' as is_generatedcolumn"
+            + " from svv_columns"
+            + " where table_catalog = current_database() and table_schema like :schema and table_name like :table"
+            + " and column_name like :column"
+            + " order by 2, 3, ordinal_position";
+
+    private static final int DATA_TYPE = 4;
+    private static final int TYPE_NAME = 5;
+
+    private RedshiftCatalogQuery() {
+    }
+
+    static ResultSet schemas(RedshiftConnection conn, String schemaPattern) throws SQLException {
+        return query(conn, SCHEMAS_SQL, new SqlParameter[]{parameter("schema", schemaPattern)}, null);
+    }
+
+    static ResultSet tables(RedshiftConnection conn, String schemaPattern, String tablePattern) throws SQLException {
+        return query(conn, TABLES_SQL, new SqlParameter[]{
+                parameter("schema", schemaPattern),
+                parameter("table", tablePattern)}, null);
+    }
+
+    static ResultSet columns(RedshiftConnection conn, String schemaPattern, String tablePattern, String columnPattern) throws SQLException {
+        return query(conn, COLUMNS_SQL, new SqlParameter[]{
+                parameter("schema", schemaPattern),
+                parameter("table", tablePattern),
+                parameter("column", columnPattern)}, RedshiftCatalogQuery::mapColumns);
+    }
+
+    private static ResultSet query(RedshiftConnection conn, String sql, SqlParameter[] params,
+                                   UnaryOperator<GetStatementResultResponse> mapper) throws SQLException {
+        RedshiftStatementHandle handle;
+        try {
+            handle = conn.execute(sql, params);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return new RedshiftResultSet(new RedshiftStatement(conn), handle, conn.getStatementResult(handle, mapper));
+    }
+
+    /**
+     * Missing and empty patterns match everything, the Data API takes no empty parameter values.
+     */
+    private static SqlParameter parameter(String name, String pattern) {
+        return SqlParameter.builder()
+                .name(name)
+                .value(pattern == null || pattern.isEmpty() ? "%" : pattern)
+                .build();
+    }
+
+    private static GetStatementResultResponse mapColumns(GetStatementResultResponse page) {
+        List<List<Field>> records = new ArrayList<>(page.records().size());
+        for (List<Field> record : page.records()) {
+            List<Field> row = new ArrayList<>(record);
+            String typeName = row.get(TYPE_NAME).stringValue();
+            row.set(DATA_TYPE, Field.fromLongValue((long) RedshiftResultSetMetadata.mapRedshiftType(shortTypeName(typeName))));
+            records.add(row);
+        }
+        return page.toBuilder().records(records).build();
+    }
+
+    /**
+     * The svv views spell types out the sql standard way, {@link RedshiftResultSetMetadata#mapRedshiftType} knows the short names.
+     */
+    static String shortTypeName(String typeName) {
+        if (typeName == null)
+            return "";
+        String t = typeName.toLowerCase(Locale.ROOT);
+        switch (t) {
+            case "character varying": return "varchar";
+            case "character": return "bpchar";
+            case "double precision": return "float8";
+            case "time without time zone": return "time";
+            case "time with time zone": return "timetz";
+            case "timestamp without time zone": return "timestamp";
+            case "timestamp with time zone": return "timestamptz";
+            default: return t;
+        }
+    }
+}
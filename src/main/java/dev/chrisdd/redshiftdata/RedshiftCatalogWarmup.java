@@ -0,0 +1,145 @@
+package dev.chrisdd.redshiftdata;
+
+import dev.chrisdd.redshiftdata.config.RedshiftConfiguration;
+import dev.chrisdd.redshiftdata.config.RedshiftConfiguration.CatalogMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Fills {@link RedshiftCatalogCache} in the background when a connection with {@code warmupSchemas} opens:
+ * the schema list and the table list of every schema matching one of the patterns, the listings a schema
+ * browser asks for first. Runs on a connection of its own, at most one warm-up per target at a time.
+ */
+class RedshiftCatalogWarmup implements CatalogWarmupStats {
+    private static final RedshiftCatalogWarmup INSTANCE = new RedshiftCatalogWarmup();
+
+    private final ExecutorService executor;
+    private final Set<List<Object>> running = ConcurrentHashMap.newKeySet();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong schemas = new AtomicLong();
+    private final AtomicLong tables = new AtomicLong();
+
+    static RedshiftCatalogWarmup getInstance() {
+        return INSTANCE;
+    }
+
+    RedshiftCatalogWarmup() {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "redshiftdata-warmup-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts the warm-up the configuration asks for and returns at once. Nothing is started without
+     * schema patterns, without a {@code catalogCacheTtl} to keep the listings or in {@code catalogMode=sql}.
+     */
+    void start(RedshiftConfiguration config) {
+        List<Pattern> patterns = patterns(config.getWarmupSchemas());
+        if (patterns.isEmpty() || config.getCatalogCacheTtl() <= 0 || config.getCatalogMode() != CatalogMode.API)
+            return;
+        List<Object> target = config.getTargetKey();
+        if (!this.running.add(target))
+            return;
+        this.started.incrementAndGet();
+        try {
+            this.executor.execute(() -> {
+                try {
+                    this.run(config, patterns);
+                    this.finished.incrementAndGet();
+                } catch (Exception e) {
+                    this.failed.incrementAndGet();
+                } finally {
+                    this.running.remove(target);
+                }
+            });
+        } catch (RuntimeException e) {
+            this.running.remove(target);
+            this.failed.incrementAndGet();
+        }
+    }
+
+    private void run(RedshiftConfiguration config, List<Pattern> patterns) throws Exception {
+        RedshiftCatalogCache cache = RedshiftCatalogCache.getInstance();
+        try (RedshiftConnection conn = new RedshiftConnection(config)) {
+            for (String schema : cache.schemas(conn, null)) {
+                if (patterns.stream().noneMatch(p -> p.matcher(schema).matches()))
+                    continue;
+                this.tables.addAndGet(cache.tables(conn, schema, null).size());
+                this.schemas.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @param schemaPatterns comma separated LIKE patterns
+     */
+    static List<Pattern> patterns(String schemaPatterns) {
+        List<Pattern> patterns = new ArrayList<>();
+        if (schemaPatterns == null)
+            return patterns;
+        for (String like : schemaPatterns.split(",")) {
+            like = like.trim();
+            if (like.isEmpty())
+                continue;
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < like.length(); i++) {
+                char c = like.charAt(i);
+                if (c == '\\' && i + 1 < like.length())
+                    regex.append(Pattern.quote(String.valueOf(like.charAt(++i))));
+                else if (c == '%')
+                    regex.append(".*");
+                else if (c == '_')
+                    regex.append('.');
+                else
+                    regex.append(Pattern.quote(String.valueOf(c)));
+            }
+            patterns.add(Pattern.compile(regex.toString()));
+        }
+        return patterns;
+    }
+
+    /**
+     * @return true while a warm-up of the configuration's target runs
+     */
+    boolean isRunning(RedshiftConfiguration config) {
+        return this.running.contains(config.getTargetKey());
+    }
+
+    @Override
+    public long getStarted() {
+        return this.started.get();
+    }
+
+    @Override
+    public long getFinished() {
+        return this.finished.get();
+    }
+
+    @Override
+    public long getFailed() {
+        return this.failed.get();
+    }
+
+    @Override
+    public long getSchemas() {
+        return this.schemas.get();
+    }
+
+    @Override
+    public long getTables() {
+        return this.tables.get();
+    }
+}
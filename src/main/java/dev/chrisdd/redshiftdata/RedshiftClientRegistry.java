@@ -0,0 +1,129 @@
+package dev.chrisdd.redshiftdata;
+
+import dev.chrisdd.redshiftdata.config.RedshiftConfiguration;
+import software.amazon.awssdk.services.redshiftdata.RedshiftDataClient;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Driver-wide registry of Data API clients. Connections with the same region, profile and http settings
+ * share one client and with it the warm http connection pool and resolved credentials.
+ * Clients are reference counted and closed once nobody used them for the idle timeout. Open connections
+ * hold a reference, and so do statements still in flight after their connection was closed, see {@link #retain}.
+ */
+class RedshiftClientRegistry {
+    static final String IDLE_TIMEOUT_PROPERTY = "redshiftdata.clientIdleTimeout";
+
+    private static final RedshiftClientRegistry INSTANCE = new RedshiftClientRegistry(Long.getLong(IDLE_TIMEOUT_PROPERTY, 60_000));
+
+    private final long idleTimeout;
+    // both guarded by this
+    private final Map<List<Object>, Entry> byKey = new HashMap<>();
+    private final Map<RedshiftDataClient, Entry> byClient = new IdentityHashMap<>();
+    private ScheduledExecutorService reaper;
+
+    static RedshiftClientRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    RedshiftClientRegistry(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    synchronized RedshiftDataClient acquire(RedshiftConfiguration config) throws SQLException {
+        List<Object> key = config.getClientKey();
+        Entry e = this.byKey.get(key);
+        if (e == null) {
+            e = new Entry(key, config.getClient());
+            this.byKey.put(key, e);
+            this.byClient.put(e.client, e);
+        }
+        if (e.eviction != null) {
+            e.eviction.cancel(false);
+            e.eviction = null;
+        }
+        e.references++;
+        return e.client;
+    }
+
+    /**
+     * Takes another reference on a client handed out by {@link #acquire}, to be given back with {@link #release}.
+     * @return false if the client is not registered, nothing has to be released then
+     */
+    synchronized boolean retain(RedshiftDataClient client) {
+        Entry e = this.byClient.get(client);
+        if (e == null)
+            return false;
+        if (e.eviction != null) {
+            e.eviction.cancel(false);
+            e.eviction = null;
+        }
+        e.references++;
+        return true;
+    }
+
+    void release(RedshiftDataClient client) {
+        Entry e;
+        synchronized (this) {
+            e = this.byClient.get(client);
+            if (e == null || --e.references > 0)
+                return;
+            if (this.idleTimeout > 0) {
+                Entry idle = e;
+                e.eviction = getReaper().schedule(() -> evict(idle), this.idleTimeout, TimeUnit.MILLISECONDS);
+                return;
+            }
+            remove(e);
+        }
+        e.client.close();
+    }
+
+    synchronized int size() {
+        return this.byKey.size();
+    }
+
+    private void evict(Entry e) {
+        synchronized (this) {
+            if (e.references > 0 || this.byClient.get(e.client) != e)
+                return;
+            remove(e);
+        }
+        e.client.close();
+    }
+
+    private void remove(Entry e) {
+        this.byKey.remove(e.key);
+        this.byClient.remove(e.client);
+    }
+
+    private ScheduledExecutorService getReaper() {
+        if (this.reaper == null) {
+            this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "redshiftdata-client-reaper");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return this.reaper;
+    }
+
+    private static class Entry {
+        final List<Object> key;
+        final RedshiftDataClient client;
+        int references;
+        ScheduledFuture<?> eviction;
+
+        Entry(List<Object> key, RedshiftDataClient client) {
+            this.key = key;
+            this.client = client;
+        }
+    }
+}
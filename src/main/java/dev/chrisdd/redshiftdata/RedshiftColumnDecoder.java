@@ -0,0 +1,193 @@
+package dev.chrisdd.redshiftdata;
+
+import software.amazon.awssdk.services.redshiftdata.model.ColumnMetadata;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+
+/**
+ * Converts the values of one result column to what the jdbc getters return, built once per column from its
+ * {@link ColumnMetadata} when the result metadata arrives. {@link #getObject} returns the java type of the
+ * column's jdbc type: Integer for int2/int4, Long for int8, BigDecimal for numeric, Date, Time and Timestamp
+ * for the temporal types.
+ * The class is final and the typed getters reach the column kind a jdbc type arrives as through a cast to its
+ * final class, so the calls of the result set getters are not virtual on either side.
+ */
+final class RedshiftColumnDecoder {
+    private final int type;
+    private final int scale;
+
+    private RedshiftColumnDecoder(int type, int scale) {
+        this.type = type;
+        this.scale = scale;
+    }
+
+    /**
+     * @param jdbcType the type {@link RedshiftResultSetMetadata#mapRedshiftType} gives the column's type name
+     */
+    static RedshiftColumnDecoder of(ColumnMetadata column, int jdbcType) {
+        Integer scale = column.scale();
+        return new RedshiftColumnDecoder(jdbcType, scale == null ? 0 : scale);
+    }
+
+    /**
+     * @return the class {@link #getObject} returns for values of the jdbc type
+     */
+    static String className(int jdbcType) {
+        switch (jdbcType) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return Boolean.class.getName();
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return Integer.class.getName();
+            case Types.BIGINT:
+                return Long.class.getName();
+            case Types.REAL:
+                return Float.class.getName();
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return Double.class.getName();
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return BigDecimal.class.getName();
+            case Types.DATE:
+                return Date.class.getName();
+            case Types.TIME:
+            case Types.TIME_WITH_TIMEZONE:
+                return Time.class.getName();
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return Timestamp.class.getName();
+            default:
+                return String.class.getName();
+        }
+    }
+
+    Object getObject(RedshiftColumnarPage.Column c, int row) throws SQLException {
+        if (c.isNull(row))
+            return null;
+        switch (this.type) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return getBoolean(c, row);
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return (int) getLong(c, row);
+            case Types.BIGINT:
+                return getLong(c, row);
+            case Types.REAL:
+                return (float) getDouble(c, row);
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return getDouble(c, row);
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return getBigDecimal(c, row);
+            case Types.DATE:
+                return getDate(c, row);
+            case Types.TIME:
+            case Types.TIME_WITH_TIMEZONE:
+                return getTime(c, row);
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return getTimestamp(c, row);
+            default:
+                return c instanceof RedshiftColumnarPage.StringColumn
+                        ? ((RedshiftColumnarPage.StringColumn) c).getString(row)
+                        : c.getObject(row);
+        }
+    }
+
+    String getString(RedshiftColumnarPage.Column c, int row) {
+        if (c instanceof RedshiftColumnarPage.StringColumn)
+            return ((RedshiftColumnarPage.StringColumn) c).getString(row);
+        return c.getString(row);
+    }
+
+    /**
+     * numeric/decimal arrive as strings, integral reads of them go through BigDecimal so "12.50" reads as 12
+     */
+    long getLong(RedshiftColumnarPage.Column c, int row) throws SQLException {
+        if (c instanceof RedshiftColumnarPage.LongColumn)
+            return ((RedshiftColumnarPage.LongColumn) c).getLong(row);
+        if (isDecimal() && c instanceof RedshiftColumnarPage.StringColumn)
+            return getBigDecimal(c, row).longValue();
+        return c.getLong(row);
+    }
+
+    double getDouble(RedshiftColumnarPage.Column c, int row) throws SQLException {
+        if (c instanceof RedshiftColumnarPage.DoubleColumn)
+            return ((RedshiftColumnarPage.DoubleColumn) c).getDouble(row);
+        return c.getDouble(row);
+    }
+
+    boolean getBoolean(RedshiftColumnarPage.Column c, int row) throws SQLException {
+        if (c instanceof RedshiftColumnarPage.BooleanColumn)
+            return ((RedshiftColumnarPage.BooleanColumn) c).getBoolean(row);
+        return c.getBoolean(row);
+    }
+
+    /**
+     * numeric values sent as doubles get the scale of the column, the way the server prints them
+     */
+    BigDecimal getBigDecimal(RedshiftColumnarPage.Column c, int row) throws SQLException {
+        if (c instanceof RedshiftColumnarPage.StringColumn)
+            return ((RedshiftColumnarPage.StringColumn) c).getBigDecimal(row);
+        BigDecimal d = c.getBigDecimal(row);
+        if (isDecimal() && c instanceof RedshiftColumnarPage.DoubleColumn && d.scale() != this.scale)
+            return d.setScale(this.scale, RoundingMode.HALF_UP);
+        return d;
+    }
+
+    Timestamp getTimestamp(RedshiftColumnarPage.Column c, int row) throws SQLException {
+        if (this.type == Types.TIME || this.type == Types.TIME_WITH_TIMEZONE)
+            return new Timestamp(getTime(c, row).getTime());
+        return parse(c, row, RedshiftDateTimeParser::toTimestamp);
+    }
+
+    Date getDate(RedshiftColumnarPage.Column c, int row) throws SQLException {
+        return parse(c, row, RedshiftDateTimeParser::toDate);
+    }
+
+    Time getTime(RedshiftColumnarPage.Column c, int row) throws SQLException {
+        return parse(c, row, RedshiftDateTimeParser::toTime);
+    }
+
+    LocalDateTime getLocalDateTime(RedshiftColumnarPage.Column c, int row) throws SQLException {
+        return parse(c, row, RedshiftDateTimeParser::toLocalDateTime);
+    }
+
+    OffsetDateTime getOffsetDateTime(RedshiftColumnarPage.Column c, int row) throws SQLException {
+        return parse(c, row, RedshiftDateTimeParser::toOffsetDateTime);
+    }
+
+    private boolean isDecimal() {
+        return this.type == Types.NUMERIC || this.type == Types.DECIMAL;
+    }
+
+    /**
+     * string columns are parsed in place from the column buffer, anything else through its string form
+     */
+    private static <T> T parse(RedshiftColumnarPage.Column c, int row, Parser<T> parser) throws SQLException {
+        if (c instanceof RedshiftColumnarPage.StringColumn) {
+            RedshiftColumnarPage.StringColumn s = (RedshiftColumnarPage.StringColumn) c;
+            return parser.parse(s.chars(), s.start(row), s.end(row));
+        }
+        char[] b = c.getString(row).toCharArray();
+        return parser.parse(b, 0, b.length);
+    }
+
+    private interface Parser<T> {
+        T parse(char[] b, int from, int to) throws SQLException;
+    }
+}
@@ -0,0 +1,399 @@
+package dev.chrisdd.redshiftdata;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.redshiftdata.model.Field;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * One page of a statement result stored column by column. Every column is converted once when the page
+ * arrives into a primitive vector with a null bitmap, so the per row {@link Field} objects of the sdk
+ * response can be dropped right away.
+ * The kind of a column is taken from the values of the page: the Data API tags every field with the
+ * value it carries, while the reported type names (int4, float8, numeric...) don't map one to one to it.
+ * A column mixing value kinds keeps its fields as they are.
+ */
+class RedshiftColumnarPage {
+    private final int start;
+    private final int size;
+    private final Column[] columns;
+
+    RedshiftColumnarPage(int start, List<List<Field>> records, int columnCount) {
+        this.start = start;
+        this.size = records.size();
+        this.columns = new Column[columnCount];
+        for (int c = 0; c < columnCount; c++)
+            this.columns[c] = buildColumn(records, c);
+    }
+
+    /**
+     * @return zero based index of the first row of this page in the whole result
+     */
+    int getStart() {
+        return start;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Column getColumn(int column) {
+        return this.columns[column];
+    }
+
+    private static Column buildColumn(List<List<Field>> records, int c) {
+        Field.Type kind = null;
+        for (List<Field> row : records) {
+            Field f = row.get(c);
+            if (isNull(f))
+                continue;
+            if (kind == null)
+                kind = f.type();
+            else if (kind != f.type())
+                return new FieldColumn(records, c);
+        }
+        if (kind == null)
+            return new NullColumn(records.size());
+        switch (kind) {
+            case LONG_VALUE:
+                return new LongColumn(records, c);
+            case DOUBLE_VALUE:
+                return new DoubleColumn(records, c);
+            case BOOLEAN_VALUE:
+                return new BooleanColumn(records, c);
+            case STRING_VALUE:
+                return new StringColumn(records, c);
+            default:
+                return new FieldColumn(records, c);
+        }
+    }
+
+    private static BitSet nulls(List<List<Field>> records, int c) {
+        BitSet nulls = new BitSet(records.size());
+        for (int r = 0; r < records.size(); r++) {
+            if (isNull(records.get(r).get(c)))
+                nulls.set(r);
+        }
+        return nulls;
+    }
+
+    private static boolean isNull(Field f) {
+        return Boolean.TRUE.equals(f.isNull()) || f.type() == Field.Type.IS_NULL;
+    }
+
+    /**
+     * Values of one column of a page. Typed accessors convert between kinds where it is lossless enough
+     * for jdbc getters (numbers from strings and back), callers check {@link #isNull} first.
+     */
+    abstract static class Column {
+        final BitSet nulls;
+
+        Column(BitSet nulls) {
+            this.nulls = nulls;
+        }
+
+        boolean isNull(int row) {
+            return this.nulls.get(row);
+        }
+
+        abstract Object getObject(int row);
+
+        String getString(int row) {
+            return String.valueOf(getObject(row));
+        }
+
+        long getLong(int row) throws SQLException {
+            try {
+                return Long.parseLong(getString(row));
+            } catch (NumberFormatException e) {
+                return (long) getDouble(row);
+            }
+        }
+
+        double getDouble(int row) throws SQLException {
+            try {
+                return Double.parseDouble(getString(row));
+            } catch (NumberFormatException e) {
+                throw new SQLException(String.format("%s is not a number", getString(row)), e);
+            }
+        }
+
+        boolean getBoolean(int row) throws SQLException {
+            String s = getString(row);
+            return s.equalsIgnoreCase("true") || s.equalsIgnoreCase("t") || s.equals("1");
+        }
+
+        BigDecimal getBigDecimal(int row) throws SQLException {
+            try {
+                return new BigDecimal(getString(row));
+            } catch (NumberFormatException e) {
+                throw new SQLException(String.format("%s is not a number", getString(row)), e);
+            }
+        }
+    }
+
+    static final class LongColumn extends Column {
+        private final long[] values;
+
+        LongColumn(List<List<Field>> records, int c) {
+            super(nulls(records, c));
+            this.values = new long[records.size()];
+            for (int r = 0; r < this.values.length; r++) {
+                if (!this.nulls.get(r))
+                    this.values[r] = records.get(r).get(c).longValue();
+            }
+        }
+
+        @Override
+        Object getObject(int row) {
+            return isNull(row) ? null : this.values[row];
+        }
+
+        @Override
+        String getString(int row) {
+            return Long.toString(this.values[row]);
+        }
+
+        @Override
+        long getLong(int row) {
+            return this.values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return this.values[row];
+        }
+
+        @Override
+        boolean getBoolean(int row) {
+            return this.values[row] != 0;
+        }
+
+        @Override
+        BigDecimal getBigDecimal(int row) {
+            return BigDecimal.valueOf(this.values[row]);
+        }
+    }
+
+    static final class DoubleColumn extends Column {
+        private final double[] values;
+
+        DoubleColumn(List<List<Field>> records, int c) {
+            super(nulls(records, c));
+            this.values = new double[records.size()];
+            for (int r = 0; r < this.values.length; r++) {
+                if (!this.nulls.get(r))
+                    this.values[r] = records.get(r).get(c).doubleValue();
+            }
+        }
+
+        @Override
+        Object getObject(int row) {
+            return isNull(row) ? null : this.values[row];
+        }
+
+        @Override
+        String getString(int row) {
+            return Double.toString(this.values[row]);
+        }
+
+        @Override
+        long getLong(int row) {
+            return (long) this.values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return this.values[row];
+        }
+
+        @Override
+        boolean getBoolean(int row) {
+            return this.values[row] != 0;
+        }
+
+        @Override
+        BigDecimal getBigDecimal(int row) {
+            return BigDecimal.valueOf(this.values[row]);
+        }
+    }
+
+    static final class BooleanColumn extends Column {
+        private final BitSet values;
+
+        BooleanColumn(List<List<Field>> records, int c) {
+            super(nulls(records, c));
+            this.values = new BitSet(records.size());
+            for (int r = 0; r < records.size(); r++) {
+                if (!this.nulls.get(r) && records.get(r).get(c).booleanValue())
+                    this.values.set(r);
+            }
+        }
+
+        @Override
+        Object getObject(int row) {
+            return isNull(row) ? null : this.values.get(row);
+        }
+
+        @Override
+        String getString(int row) {
+            return Boolean.toString(this.values.get(row));
+        }
+
+        @Override
+        long getLong(int row) {
+            return this.values.get(row) ? 1 : 0;
+        }
+
+        @Override
+        double getDouble(int row) {
+            return getLong(row);
+        }
+
+        @Override
+        boolean getBoolean(int row) {
+            return this.values.get(row);
+        }
+
+        @Override
+        BigDecimal getBigDecimal(int row) {
+            return BigDecimal.valueOf(getLong(row));
+        }
+    }
+
+    /**
+     * All strings of the column back to back in one char array, row r spans offsets[r] to offsets[r+1].
+     */
+    static final class StringColumn extends Column {
+        private final char[] chars;
+        private final int[] offsets;
+
+        StringColumn(List<List<Field>> records, int c) {
+            super(nulls(records, c));
+            int n = records.size();
+            this.offsets = new int[n + 1];
+            int length = 0;
+            for (int r = 0; r < n; r++) {
+                if (!this.nulls.get(r))
+                    length += records.get(r).get(c).stringValue().length();
+            }
+            this.chars = new char[length];
+            int offset = 0;
+            for (int r = 0; r < n; r++) {
+                this.offsets[r] = offset;
+                if (this.nulls.get(r))
+                    continue;
+                String s = records.get(r).get(c).stringValue();
+                s.getChars(0, s.length(), this.chars, offset);
+                offset += s.length();
+            }
+            this.offsets[n] = offset;
+        }
+
+        @Override
+        Object getObject(int row) {
+            return isNull(row) ? null : getString(row);
+        }
+
+        @Override
+        String getString(int row) {
+            return new String(this.chars, this.offsets[row], this.offsets[row + 1] - this.offsets[row]);
+        }
+
+        /**
+         * @return the shared character buffer of the column, row r is [start(r), end(r))
+         */
+        char[] chars() {
+            return this.chars;
+        }
+
+        int start(int row) {
+            return this.offsets[row];
+        }
+
+        int end(int row) {
+            return this.offsets[row + 1];
+        }
+    }
+
+    static final class NullColumn extends Column {
+        NullColumn(int size) {
+            super(allSet(size));
+        }
+
+        private static BitSet allSet(int size) {
+            BitSet b = new BitSet(size);
+            b.set(0, size);
+            return b;
+        }
+
+        @Override
+        Object getObject(int row) {
+            return null;
+        }
+    }
+
+    /**
+     * Fallback for blobs and columns mixing value kinds, keeps the sdk fields.
+     */
+    static final class FieldColumn extends Column {
+        private final Field[] values;
+
+        FieldColumn(List<List<Field>> records, int c) {
+            super(nulls(records, c));
+            this.values = new Field[records.size()];
+            for (int r = 0; r < this.values.length; r++)
+                this.values[r] = records.get(r).get(c);
+        }
+
+        @Override
+        Object getObject(int row) {
+            Field fld = this.values[row];
+            switch (fld.type()) {
+                case BLOB_VALUE:
+                    return fld.blobValue();
+                case BOOLEAN_VALUE:
+                    return fld.booleanValue();
+                case DOUBLE_VALUE:
+                    return fld.doubleValue();
+                case LONG_VALUE:
+                    return fld.longValue();
+                case STRING_VALUE:
+                    return fld.stringValue();
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        long getLong(int row) throws SQLException {
+            Field fld = this.values[row];
+            if (fld.type() == Field.Type.LONG_VALUE)
+                return fld.longValue();
+            return super.getLong(row);
+        }
+
+        @Override
+        double getDouble(int row) throws SQLException {
+            Field fld = this.values[row];
+            if (fld.type() == Field.Type.DOUBLE_VALUE)
+                return fld.doubleValue();
+            return super.getDouble(row);
+        }
+
+        @Override
+        boolean getBoolean(int row) throws SQLException {
+            Field fld = this.values[row];
+            if (fld.type() == Field.Type.BOOLEAN_VALUE)
+                return fld.booleanValue();
+            return super.getBoolean(row);
+        }
+
+        SdkBytes getBytes(int row) {
+            return this.values[row].blobValue();
+        }
+    }
+}
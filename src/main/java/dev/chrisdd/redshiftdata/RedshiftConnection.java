@@ -5,19 +5,35 @@ import software.amazon.awssdk.services.redshiftdata.RedshiftDataClient;
 import software.amazon.awssdk.services.redshiftdata.model.*;
 import software.amazon.awssdk.services.redshiftdata.paginators.*;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
-class RedshiftConnection implements Connection {
+public class RedshiftConnection implements Connection {
+    /**
+     * Limits of a single BatchExecuteStatement call, statements per call and total sql size.
+     */
+    static final int MAX_BATCH_STATEMENTS = 40;
+    static final int MAX_BATCH_SQL_BYTES = 100 * 1024;
 
     private final RedshiftConfiguration config;
     private final RedshiftDataClient client;
+    private final PollStrategy pollStrategy;
     private String schema;
     private String catalog;
+    private boolean closed;
+    // downloads of results read through this connection, stopped on close
+    private final Set<RedshiftPagePrefetcher> prefetchers = Collections.newSetFromMap(new WeakHashMap<>());
 
-    public RedshiftConnection(RedshiftConfiguration config){
-        this.client = config.getClient();
+    public RedshiftConnection(RedshiftConfiguration config) throws SQLException {
+        this.pollStrategy = RedshiftStatementPoller.getInstance().getStrategy(config.getPollStrategy());
+        this.client = RedshiftClientRegistry.getInstance().acquire(config);
         this.config = config;
         this.schema = null;
         this.catalog= config.getDatabase();
@@ -77,59 +93,65 @@ class RedshiftConnection implements Connection {
         return this.client.listSchemasPaginator(req);
     }
 
-    private void cancelExecution(String id){
-        CancelStatementRequest req = CancelStatementRequest.builder().id(id).build();
-        try{
-            this.client.cancelStatement(req);
-        } catch (RedshiftDataException ignored){
-
+    private RedshiftStatementHandle waitExecution(RedshiftStatementHandle handle) throws InterruptedException, SQLException {
+        try {
+            return submitExecution(handle).get();
+        } catch (ExecutionException e) {
+            throw asSQLException(e.getCause());
         }
     }
 
-    private void waitExecution(String id) throws InterruptedException, SQLException {
-        int sleepDuration = 5;
-        int totalSleep = 0;
-        while (true){
-            DescribeStatementResponse resp = describeExecution(id);
-            switch (resp.status()){
-                case PICKED:
-                case SUBMITTED:
-                case STARTED:
-                    if (totalSleep > this.config.getNetworkTimeout()) {
-                        cancelExecution(id);
-                        throw new SQLException(String.format("query timed out after %d miliseconds",totalSleep));
-                    }
-                    sleepDuration = sleepDuration*2;
-                    if (sleepDuration > 2000) sleepDuration = 2000;
-                    Thread.sleep(sleepDuration);
-                    totalSleep += sleepDuration;
-                    continue;
-                case FINISHED:
-                    return;
-                case FAILED:
-                case ABORTED:
-                    throw new SQLException(String.format("query failed/aborted %s %s",resp.redshiftQueryId(),resp.error()));
-                case UNKNOWN_TO_SDK_VERSION:
-                    throw new SQLException(String.format("unknown status %s",resp.statusAsString()));
-            }
-        }
+    private CompletableFuture<RedshiftStatementHandle> submitExecution(RedshiftStatementHandle handle){
+        RedshiftStatementPoller poller = RedshiftStatementPoller.getInstance();
+        CompletableFuture<DescribeStatementResponse> f;
+        if (this.config.getPollMode() == RedshiftConfiguration.PollMode.LIST)
+            f = poller.submitListed(this.client,handle.getId(),handle.getSql(),this.pollStrategy,this.config.getNetworkTimeout());
+        else
+            f = poller.submit(this.client,handle.getId(),handle.getSql(),this.pollStrategy,this.config.getNetworkTimeout());
+        return f.thenApply(handle::finish);
     }
 
-    private DescribeStatementResponse describeExecution(String id){
-        DescribeStatementRequest req = DescribeStatementRequest.builder()
-                .id(id)
-                .build();
-        return this.client.describeStatement(req);
+    static SQLException asSQLException(Throwable e){
+        if (e instanceof CompletionException && e.getCause() != null)
+            e = e.getCause();
+        if (e instanceof SQLException)
+            return (SQLException) e;
+        return new SQLException(e.getMessage(),e);
     }
 
-    private Iterator<GetStatementResultResponse> getStatementResult(String id){
+    public Iterator<GetStatementResultResponse> getStatementResult(RedshiftStatementHandle handle){
+        return this.getStatementResult(handle,null);
+    }
+
+    /**
+     * @param mapper applied to each page as it is downloaded, on the prefetch thread if there is one
+     */
+    Iterator<GetStatementResultResponse> getStatementResult(RedshiftStatementHandle handle, UnaryOperator<GetStatementResultResponse> mapper){
         GetStatementResultRequest req = GetStatementResultRequest.builder()
-                .id(id)
+                .id(handle.getId())
                 .build();
-        return this.client.getStatementResultPaginator(req).iterator();
+        Iterator<GetStatementResultResponse> source = this.client.getStatementResultPaginator(req).iterator();
+        Iterator<GetStatementResultResponse> pages = mapper == null ? source : new Iterator<GetStatementResultResponse>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public GetStatementResultResponse next() {
+                return mapper.apply(source.next());
+            }
+        };
+        if (this.config.getPrefetchPages() <= 0)
+            return pages;
+        RedshiftPagePrefetcher prefetcher = new RedshiftPagePrefetcher(pages,this.config.getPrefetchPages());
+        synchronized (this.prefetchers) {
+            this.prefetchers.add(prefetcher);
+        }
+        return prefetcher;
     }
 
-    private String executeSqlImpl(String query,SqlParameter[] parameters){
+    private RedshiftStatementHandle executeSqlImpl(String query,SqlParameter[] parameters){
         ExecuteStatementRequest.Builder req = ExecuteStatementRequest.builder()
                 .sql(query)
                 .database(this.config.getDatabase())
@@ -137,24 +159,137 @@ class RedshiftConnection implements Connection {
                 .dbUser(this.config.getDbUser())
                 .secretArn(this.config.getSecretArn())
                 .workgroupName(this.config.getWorkgroupName());
+        if (this.config.getPollMode() == RedshiftConfiguration.PollMode.LIST)
+            req = req.statementName(RedshiftStatementPoller.STATEMENT_NAME);
         if (parameters.length >0 )
             req = req.parameters(parameters);
         ExecuteStatementResponse resp = this.client.executeStatement(req.build());
-        return resp.id();
+        return new RedshiftStatementHandle(resp.id(),query);
+    }
+
+    private RedshiftStatementHandle batchExecuteSqlImpl(List<String> queries){
+        BatchExecuteStatementRequest.Builder req = BatchExecuteStatementRequest.builder()
+                .sqls(queries)
+                .database(this.config.getDatabase())
+                .clusterIdentifier(this.config.getClusterIdentifier())
+                .dbUser(this.config.getDbUser())
+                .secretArn(this.config.getSecretArn())
+                .workgroupName(this.config.getWorkgroupName());
+        if (this.config.getPollMode() == RedshiftConfiguration.PollMode.LIST)
+            req = req.statementName(RedshiftStatementPoller.STATEMENT_NAME);
+        BatchExecuteStatementResponse resp = this.client.batchExecuteStatement(req.build());
+        return new RedshiftStatementHandle(resp.id(),String.join(";\n",queries));
+    }
+
+    /**
+     * Splits the statements into consecutive chunks within the BatchExecuteStatement limits.
+     * A statement above the size limit on its own still gets a chunk, the service rejects it.
+     */
+    static List<List<String>> chunkBatch(List<String> queries){
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>();
+        int bytes = 0;
+        for (String query : queries) {
+            int size = query.getBytes(StandardCharsets.UTF_8).length;
+            if (!chunk.isEmpty() && (chunk.size() == MAX_BATCH_STATEMENTS || bytes + size > MAX_BATCH_SQL_BYTES)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                bytes = 0;
+            }
+            chunk.add(query);
+            bytes += size;
+        }
+        if (!chunk.isEmpty())
+            chunks.add(chunk);
+        return chunks;
+    }
+
+    /**
+     * Runs the statements with as few BatchExecuteStatement calls as the limits allow. Each call is a
+     * transaction of its own, so chunks run one after the other and the first failing chunk stops the batch.
+     * @return update count per statement, {@link Statement#SUCCESS_NO_INFO} where the service reports none
+     * @throws BatchUpdateException carrying the counts of the chunks that completed
+     */
+    public long[] executeBatch(List<String> queries) throws SQLException, InterruptedException {
+        long[] counts = new long[queries.size()];
+        int done = 0;
+        for (List<String> chunk : chunkBatch(queries)) {
+            RedshiftStatementHandle handle;
+            try {
+                handle = waitExecution(this.batchExecuteSqlImpl(chunk));
+            } catch (SQLException e) {
+                throw new BatchUpdateException(e.getMessage(),e.getSQLState(),e.getErrorCode(),Arrays.copyOf(counts,done),e);
+            } catch (RuntimeException e) {
+                throw new BatchUpdateException(e.getMessage(),null,0,Arrays.copyOf(counts,done),e);
+            }
+            List<SubStatementData> subs = handle.getDescription().subStatements();
+            for (int i = 0; i < chunk.size(); i++) {
+                SubStatementData sub = i < subs.size() ? subs.get(i) : null;
+                if (sub == null || sub.resultRows() == null || sub.resultRows() < 0 || Boolean.TRUE.equals(sub.hasResultSet()))
+                    counts[done + i] = Statement.SUCCESS_NO_INFO;
+                else
+                    counts[done + i] = sub.resultRows();
+            }
+            done += chunk.size();
+        }
+        return counts;
+    }
+
+    /**
+     * Runs the statement and blocks until it finished, the returned handle carries the terminal describe response.
+     */
+    public RedshiftStatementHandle execute(String query, SqlParameter[] params) throws SQLException, InterruptedException {
+        return waitExecution(this.executeSqlImpl(query,params));
+    }
+
+    /**
+     * Submits the query and returns immediately. The future completes on the driver-wide poller
+     * once the statement has finished, without holding the calling thread while it runs.
+     * Cancelling the future cancels the statement on the server.
+     */
+    public CompletableFuture<ResultSet> executeQueryAsync(String query, SqlParameter[] params){
+        RedshiftStatement stmt = new RedshiftStatement(this);
+        return this.executeAsync(query,params,handle -> {
+            if (!handle.hasResultSet())
+                throw new CompletionException(new SQLException("no result set from query"));
+            try {
+                return new RedshiftResultSet(stmt,handle,this.getStatementResult(handle));
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
     }
 
-    public long executeSql(String query, SqlParameter[] params) throws SQLException, InterruptedException {
-        String id = this.executeSqlImpl(query,params);
-        waitExecution(id);
-        return describeExecution(id).resultRows();
+    /**
+     * Like {@link #executeQueryAsync}, completes with the number of affected rows.
+     */
+    public CompletableFuture<Long> executeUpdateAsync(String query, SqlParameter[] params){
+        return this.executeAsync(query,params,RedshiftStatementHandle::getResultRows);
     }
-    public Optional<Iterator<GetStatementResultResponse>> executeQuery(String query,SqlParameter[] params ) throws SQLException, InterruptedException {
-        String id = this.executeSqlImpl(query,params);
-        waitExecution(id);
-        DescribeStatementResponse resp = describeExecution(id);
-        if (resp.hasResultSet())
-            return Optional.of(this.getStatementResult(id));
-        return Optional.empty();
+
+    private <T> CompletableFuture<T> executeAsync(String query, SqlParameter[] params, Function<RedshiftStatementHandle,T> result){
+        Executor blocking = RedshiftStatementPoller.getInstance().getBlockingExecutor();
+        // the submit and the result read may run after this connection was closed
+        boolean retained = RedshiftClientRegistry.getInstance().retain(this.client);
+        CompletableFuture<RedshiftStatementHandle> submitted = CompletableFuture.supplyAsync(() -> this.executeSqlImpl(query,params),blocking);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        submitted.thenCompose(this::submitExecution)
+                .thenApplyAsync(result,blocking)
+                .whenComplete((r,e) -> {
+                    if (e != null)
+                        future.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    else
+                        future.complete(r);
+                });
+        // also covers a cancel before the submit returned, the statement is cancelled once its id is known
+        future.whenComplete((r,e) -> {
+            CompletableFuture<?> last = submitted;
+            if (future.isCancelled())
+                last = submitted.thenAccept(handle -> RedshiftStatementPoller.cancel(this.client,handle.getId()));
+            if (retained)
+                last.whenComplete((x,y) -> RedshiftClientRegistry.getInstance().release(this.client));
+        });
+        return future;
     }
 
 
@@ -199,13 +334,20 @@ class RedshiftConnection implements Connection {
     }
 
     @Override
-    public void close() throws SQLException {
-        this.client.close();
+    public synchronized void close() throws SQLException {
+        if (this.closed)
+            return;
+        this.closed = true;
+        synchronized (this.prefetchers) {
+            this.prefetchers.forEach(RedshiftPagePrefetcher::close);
+            this.prefetchers.clear();
+        }
+        RedshiftClientRegistry.getInstance().release(this.client);
     }
 
     @Override
-    public boolean isClosed() throws SQLException {
-        return false;
+    public synchronized boolean isClosed() throws SQLException {
+        return this.closed;
     }
 
     @Override
@@ -431,4 +573,25 @@ class RedshiftConnection implements Connection {
     public RedshiftConfiguration getConfig(){
         return this.config;
     }
+
+    /**
+     * Drops the cached catalog listings of this connection's database, for changes made outside the driver.
+     */
+    public void invalidateCatalogCache(){
+        RedshiftCatalogCache.getInstance().invalidate(this.config);
+    }
+
+    /**
+     * @return counters of the catalog warm-ups of the driver, see the {@code warmupSchemas} property
+     */
+    public CatalogWarmupStats getCatalogWarmupStats(){
+        return RedshiftCatalogWarmup.getInstance();
+    }
+
+    /**
+     * @return true while a catalog warm-up of this connection's database runs
+     */
+    public boolean isCatalogWarmupRunning(){
+        return RedshiftCatalogWarmup.getInstance().isRunning(this.config);
+    }
 }
\ No newline at end of file
@@ -1,13 +1,11 @@
 package dev.chrisdd.redshiftdata;
 
+import dev.chrisdd.redshiftdata.config.RedshiftConfiguration.CatalogMode;
 import dev.chrisdd.redshiftdata.ripped.EscapedFunctions;
 import software.amazon.awssdk.services.redshiftdata.model.ColumnMetadata;
-import software.amazon.awssdk.services.redshiftdata.model.DescribeTableResponse;
 import software.amazon.awssdk.services.redshiftdata.model.Field;
 import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
-import software.amazon.awssdk.services.redshiftdata.paginators.ListDatabasesIterable;
-import software.amazon.awssdk.services.redshiftdata.paginators.ListSchemasIterable;
-import software.amazon.awssdk.services.redshiftdata.paginators.ListTablesIterable;
+import software.amazon.awssdk.services.redshiftdata.model.TableMember;
 
 import java.sql.*;
 import java.util.*;
@@ -16,12 +14,18 @@ import java.util.stream.Collectors;
 class RedshiftDatabaseMetadata implements DatabaseMetaData {
 
     private final RedshiftConnection conn;
-    private String username;
 
     public RedshiftDatabaseMetadata(RedshiftConnection conn) {
         this.conn = conn;
     }
 
+    /**
+     * not kept here, the driver caches it unless the connection has {@code cacheServerInfo=false}
+     */
+    private RedshiftServerInfo getServerInfo() throws SQLException {
+        return RedshiftServerInfo.of(this.conn);
+    }
+
 
     @Override
     public String getURL() throws SQLException {
@@ -30,13 +34,7 @@ class RedshiftDatabaseMetadata implements DatabaseMetaData {
 
     @Override
     public String getUserName() throws SQLException {
-        if (this.username != null) {
-            return this.username;
-        }
-        ResultSet rs = this.conn.createStatement().executeQuery("select current_user()");
-        rs.next();
-        this.username = rs.getString(1);
-        return this.username;
+        return this.getServerInfo().getUser();
     }
 
     @Override
@@ -51,9 +49,7 @@ class RedshiftDatabaseMetadata implements DatabaseMetaData {
 
     @Override
     public String getDatabaseProductVersion() throws SQLException {
-        ResultSet rs = this.conn.createStatement().executeQuery("select version()");
-        rs.next();
-        return rs.getString(1);
+        return this.getServerInfo().getVersion();
     }
 
     @Override
@@ -198,7 +194,9 @@ class RedshiftDatabaseMetadata implements DatabaseMetaData {
 
     @Override
     public ResultSet getTables(String catalog, String schemaPattern, String tableNamePattern, String[] types) throws SQLException {
-        ListTablesIterable tables = this.conn.listTables(schemaPattern, tableNamePattern);
+        if (this.conn.getConfig().getCatalogMode() == CatalogMode.SQL)
+            return RedshiftCatalogQuery.tables(this.conn, schemaPattern, tableNamePattern);
+        List<TableMember> tables = RedshiftCatalogCache.getInstance().tables(this.conn, schemaPattern, tableNamePattern);
         ColumnMetadata[] columns = new ColumnMetadata[]{
                 ColumnMetadata.builder()
                         .name("table_cat")
@@ -332,7 +330,6 @@ class RedshiftDatabaseMetadata implements DatabaseMetaData {
                         .build(),
         };
         List<List<Field>> records = tables.stream()
-                .flatMap(resp -> resp.tables().stream())
                 .map(d -> Arrays.asList(
                         Field.builder().stringValue(this.conn.getConfig().getDatabase()).build(),
                         Field.builder().stringValue(d.schema()).build(),
@@ -402,7 +399,7 @@ class RedshiftDatabaseMetadata implements DatabaseMetaData {
 
     @Override
     public ResultSet getCatalogs() throws SQLException {
-        ListDatabasesIterable databases = this.conn.listDatabase();
+        List<String> databases = RedshiftCatalogCache.getInstance().databases(this.conn);
         ColumnMetadata[] columns = new ColumnMetadata[]{
                 ColumnMetadata.builder()
                         .name("TABLE_CAT")
@@ -411,7 +408,7 @@ class RedshiftDatabaseMetadata implements DatabaseMetaData {
                         .nullable(ResultSetMetaData.columnNoNulls)
                         .build()
         };
-        List<List<Field>> records = databases.stream().flatMap(resp -> resp.databases().stream()).map(d -> Arrays.asList(Field.builder().stringValue(d).build())).collect(Collectors.toList());
+        List<List<Field>> records = databases.stream().map(d -> Arrays.asList(Field.builder().stringValue(d).build())).collect(Collectors.toList());
         return new RedshiftResultSet(new RedshiftStatement(conn), Collections.singletonList(
                 GetStatementResultResponse.builder()
                         .columnMetadata(columns)
@@ -444,41 +441,45 @@ class RedshiftDatabaseMetadata implements DatabaseMetaData {
 
     @Override
     public ResultSet getColumns(String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) throws SQLException {
-        Iterator<DescribeTableResponse> iter = this.conn.describeTable(schemaPattern, tableNamePattern);
+        if (this.conn.getConfig().getCatalogMode() == CatalogMode.SQL)
+            return RedshiftCatalogQuery.columns(this.conn, schemaPattern, tableNamePattern, columnNamePattern);
+        List<ColumnMetadata> tableColumns = RedshiftCatalogCache.getInstance().columns(this.conn, schemaPattern, tableNamePattern);
         List<List<Field>> records = new ArrayList<>();
         long ordinal = 0;
-        while (iter.hasNext()) {
-            DescribeTableResponse resp = iter.next();
-            for (ColumnMetadata c : resp.columnList()) {
-
-                records.add(Arrays.asList(
-                                Field.fromStringValue(this.conn.getConfig().getDatabase()),
-                                Field.fromStringValue(c.schemaName()),
-                                Field.fromStringValue(c.tableName()),
-                                Field.fromStringValue(c.name()),
-                                Field.fromLongValue((long) RedshiftResultSetMetadata.mapRedshiftType(c.typeName().toLowerCase())),
-                                Field.fromStringValue(c.typeName()),
-                                Field.fromLongValue(c.precision().longValue()),
-                                Field.fromStringValue(""),
-                                Field.fromLongValue(c.scale().longValue()),
-                                Field.fromLongValue(2L),
-                                Field.fromLongValue(c.nullable().longValue()),
-                                Field.fromIsNull(true),
-                                Field.fromStringValue(c.columnDefault() == null ? "" : c.columnDefault()),
-                                Field.fromIsNull(true),
-                                Field.fromIsNull(true),
-                                Field.fromLongValue(c.length().longValue()),
-                                Field.fromLongValue(ordinal++),
-                                Field.fromStringValue(c.nullable() == columnNullable ? "YES" : "NO"),
-                                Field.fromIsNull(true),
-                                Field.fromIsNull(true),
-                                Field.fromIsNull(true),
-                                Field.fromIsNull(true),
-                                Field.fromStringValue("NO"),
-                                Field.fromStringValue("NO")
-                        )
-                );
-            }
+        ColumnMetadata previous = null;
+        for (ColumnMetadata c : tableColumns) {
+            // positions count from 1 within each table
+            if (previous == null || !Objects.equals(previous.schemaName(), c.schemaName()) || !Objects.equals(previous.tableName(), c.tableName()))
+                ordinal = 1;
+            previous = c;
+
+            records.add(Arrays.asList(
+                            Field.fromStringValue(this.conn.getConfig().getDatabase()),
+                            Field.fromStringValue(c.schemaName()),
+                            Field.fromStringValue(c.tableName()),
+                            Field.fromStringValue(c.name()),
+                            Field.fromLongValue((long) RedshiftResultSetMetadata.mapRedshiftType(c.typeName().toLowerCase(Locale.ROOT))),
+                            Field.fromStringValue(c.typeName()),
+                            Field.fromLongValue(c.precision().longValue()),
+                            Field.fromStringValue(""),
+                            Field.fromLongValue(c.scale().longValue()),
+                            Field.fromLongValue(2L),
+                            Field.fromLongValue(c.nullable().longValue()),
+                            Field.fromIsNull(true),
+                            Field.fromStringValue(c.columnDefault() == null ? "" : c.columnDefault()),
+                            Field.fromIsNull(true),
+                            Field.fromIsNull(true),
+                            Field.fromLongValue(c.length().longValue()),
+                            Field.fromLongValue(ordinal++),
+                            Field.fromStringValue(c.nullable() == columnNullable ? "YES" : "NO"),
+                            Field.fromIsNull(true),
+                            Field.fromIsNull(true),
+                            Field.fromIsNull(true),
+                            Field.fromIsNull(true),
+                            Field.fromStringValue("NO"),
+                            Field.fromStringValue("NO")
+                    )
+            );
         }
 
 
@@ -725,12 +726,12 @@ class RedshiftDatabaseMetadata implements DatabaseMetaData {
 
     @Override
     public int getDatabaseMajorVersion() throws SQLException {
-        return 0;
+        return this.getServerInfo().getMajorVersion();
     }
 
     @Override
     public int getDatabaseMinorVersion() throws SQLException {
-        return 0;
+        return this.getServerInfo().getMinorVersion();
     }
 
     @Override
@@ -755,7 +756,9 @@ class RedshiftDatabaseMetadata implements DatabaseMetaData {
 
     @Override
     public ResultSet getSchemas(String catalog, String schemaPattern) throws SQLException {
-        ListSchemasIterable schemas = this.conn.listSchemas(schemaPattern);
+        if (this.conn.getConfig().getCatalogMode() == CatalogMode.SQL)
+            return RedshiftCatalogQuery.schemas(this.conn, schemaPattern);
+        List<String> schemas = RedshiftCatalogCache.getInstance().schemas(this.conn, schemaPattern);
         ColumnMetadata[] columns = new ColumnMetadata[]{
                 ColumnMetadata.builder()
                         .name("TABLE_SCHEM")
@@ -771,7 +774,6 @@ class RedshiftDatabaseMetadata implements DatabaseMetaData {
                         .build()
         };
         List<List<Field>> records = schemas.stream()
-                .flatMap(resp -> resp.schemas().stream())
                 .map(d -> Arrays.asList(
                         Field.builder().stringValue(d).build(),
                         Field.builder().stringValue("").build()))
@@ -0,0 +1,303 @@
+package dev.chrisdd.redshiftdata;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Parses the date and time strings of the Data API straight from characters, without going through
+ * {@link java.time.format.DateTimeFormatter} or intermediate strings.
+ * <pre>
+ *     "2023-10-23"
+ *     "09:26:38.779304+00"
+ *     "2023-10-23 09:26:38.779304+00"
+ * </pre>
+ * The fraction can have 0 to 9 digits, the offset is {@code Z} or {@code +HH[:MM[:SS]]} / {@code +HHMM}.
+ * Dates before year 1 end in {@code " BC"}, {@code "0044-03-15 BC"} is the proleptic year -43.
+ * Values are kept as microseconds, the precision of redshift.
+ */
+final class RedshiftDateTimeParser {
+    static final long MICROS_PER_SECOND = 1_000_000L;
+    static final long MICROS_PER_DAY = 86_400L * MICROS_PER_SECOND;
+    /**
+     * returned by {@link #offsetSeconds} when the value carries no offset
+     */
+    static final int NO_OFFSET = Integer.MIN_VALUE;
+
+    private RedshiftDateTimeParser() {
+    }
+
+    /**
+     * @return days since 1970-01-01 of the date at the start of the value
+     */
+    static long epochDay(char[] b, int from, int to) throws SQLException {
+        int end = dateEnd(b, from, to);
+        if (end < 0)
+            throw error(b, from, to, "date");
+        return day(b, from, to, end, "date");
+    }
+
+    /**
+     * @return microseconds since midnight of the time of the value, a date in front of it is skipped
+     * and the offset ignored
+     */
+    static long microsOfDay(char[] b, int from, int to) throws SQLException {
+        int last = eraStart(b, from, to);
+        int start = timeStart(b, from, last);
+        long micros = time(b, start, last);
+        if (micros < 0)
+            throw error(b, from, to, "time");
+        return micros;
+    }
+
+    /**
+     * @return the wall clock date and time in microseconds since 1970-01-01T00:00, ignoring the offset
+     */
+    static long localMicros(char[] b, int from, int to) throws SQLException {
+        int end = dateEnd(b, from, to);
+        if (end < 0)
+            throw error(b, from, to, "timestamp");
+        long day = day(b, from, to, end, "timestamp");
+        int last = eraStart(b, from, to);
+        if (end == last)
+            return day * MICROS_PER_DAY;
+        if (b[end] != ' ' && b[end] != 'T')
+            throw error(b, from, to, "timestamp");
+        long micros = time(b, end + 1, last);
+        if (micros < 0)
+            throw error(b, from, to, "timestamp");
+        return day * MICROS_PER_DAY + micros;
+    }
+
+    /**
+     * @return the offset from utc in seconds, {@link #NO_OFFSET} if the value has none
+     */
+    static int offsetSeconds(char[] b, int from, int to) throws SQLException {
+        int last = eraStart(b, from, to);
+        int i = offsetStart(b, timeStart(b, from, last), last);
+        if (i == last)
+            return NO_OFFSET;
+        if (b[i] == 'Z')
+            return 0;
+        int sign = b[i] == '-' ? -1 : 1;
+        int n = last - i - 1;
+        int h = n >= 2 ? digits2(b, i + 1) : -1;
+        int m = 0;
+        int s = 0;
+        if (n == 4)
+            m = digits2(b, i + 3);
+        else if (n == 5 && b[i + 3] == ':')
+            m = digits2(b, i + 4);
+        else if (n == 8 && b[i + 3] == ':' && b[i + 6] == ':') {
+            m = digits2(b, i + 4);
+            s = digits2(b, i + 7);
+        } else if (n != 2)
+            h = -1;
+        if (h < 0 || h > 18 || m < 0 || m > 59 || s < 0 || s > 59)
+            throw error(b, from, to, "offset");
+        return sign * (h * 3600 + m * 60 + s);
+    }
+
+    /**
+     * @return microseconds since the epoch, values without an offset are taken as utc
+     */
+    static long epochMicros(char[] b, int from, int to) throws SQLException {
+        long local = localMicros(b, from, to);
+        int offset = offsetSeconds(b, from, to);
+        return offset == NO_OFFSET ? local : local - offset * MICROS_PER_SECOND;
+    }
+
+    /**
+     * Values with an offset become that instant, values without one are read in the default time zone
+     * like {@link Timestamp#valueOf(String)} does.
+     */
+    @SuppressWarnings("deprecation")
+    static Timestamp toTimestamp(char[] b, int from, int to) throws SQLException {
+        long local = localMicros(b, from, to);
+        int offset = offsetSeconds(b, from, to);
+        long micros = Math.floorMod(local, MICROS_PER_SECOND);
+        Timestamp ts;
+        if (offset != NO_OFFSET) {
+            ts = new Timestamp(Math.floorDiv(local - offset * MICROS_PER_SECOND, MICROS_PER_SECOND) * 1000);
+        } else {
+            long day = Math.floorDiv(local, MICROS_PER_DAY);
+            long secondOfDay = Math.floorMod(local, MICROS_PER_DAY) / MICROS_PER_SECOND;
+            long ymd = civil(day);
+            ts = new Timestamp((int) (ymd >> 9) - 1900, (int) ((ymd >> 5) & 0xF) - 1, (int) (ymd & 0x1F),
+                    (int) (secondOfDay / 3600), (int) (secondOfDay / 60 % 60), (int) (secondOfDay % 60), 0);
+        }
+        ts.setNanos((int) micros * 1000);
+        return ts;
+    }
+
+    @SuppressWarnings("deprecation")
+    static Date toDate(char[] b, int from, int to) throws SQLException {
+        long ymd = civil(epochDay(b, from, to));
+        return new Date((int) (ymd >> 9) - 1900, (int) ((ymd >> 5) & 0xF) - 1, (int) (ymd & 0x1F));
+    }
+
+    @SuppressWarnings("deprecation")
+    static Time toTime(char[] b, int from, int to) throws SQLException {
+        long seconds = microsOfDay(b, from, to) / MICROS_PER_SECOND;
+        return new Time((int) (seconds / 3600), (int) (seconds / 60 % 60), (int) (seconds % 60));
+    }
+
+    static LocalDateTime toLocalDateTime(char[] b, int from, int to) throws SQLException {
+        long local = localMicros(b, from, to);
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(local, MICROS_PER_SECOND),
+                (int) Math.floorMod(local, MICROS_PER_SECOND) * 1000, ZoneOffset.UTC);
+    }
+
+    /**
+     * values without an offset are taken as utc
+     */
+    static OffsetDateTime toOffsetDateTime(char[] b, int from, int to) throws SQLException {
+        int offset = offsetSeconds(b, from, to);
+        return OffsetDateTime.of(toLocalDateTime(b, from, to), ZoneOffset.ofTotalSeconds(offset == NO_OFFSET ? 0 : offset));
+    }
+
+    /**
+     * @return the index right after the day digits of a {@code yyyy-MM-dd} prefix, -1 if there is none
+     */
+    private static int dateEnd(char[] b, int from, int to) {
+        int i = from;
+        if (i < to && b[i] == '-')
+            i++;
+        int yearStart = i;
+        while (i < to && isDigit(b[i]))
+            i++;
+        if (i - yearStart < 4 || i + 6 > to || b[i] != '-' || b[i + 3] != '-')
+            return -1;
+        if (!isDigit(b[i + 1]) || !isDigit(b[i + 2]) || !isDigit(b[i + 4]) || !isDigit(b[i + 5]))
+            return -1;
+        return i + 6;
+    }
+
+    private static int timeStart(char[] b, int from, int to) {
+        int end = dateEnd(b, from, to);
+        return end < 0 ? from : Math.min(end + 1, to);
+    }
+
+    /**
+     * @return microseconds of {@code HH:mm:ss[.f]} starting at from, -1 if malformed
+     */
+    private static long time(char[] b, int from, int to) {
+        if (from + 8 > to || b[from + 2] != ':' || b[from + 5] != ':')
+            return -1;
+        int h = digits2(b, from);
+        int m = digits2(b, from + 3);
+        int s = digits2(b, from + 6);
+        if (h < 0 || h > 24 || m < 0 || m > 59 || s < 0 || s > 60)
+            return -1;
+        long micros = ((h * 60L + m) * 60 + s) * MICROS_PER_SECOND;
+        int i = from + 8;
+        if (i < to && b[i] == '.') {
+            long fraction = 0;
+            int scale = 0;
+            i++;
+            for (; i < to && isDigit(b[i]); i++, scale++) {
+                if (scale < 6)
+                    fraction = fraction * 10 + (b[i] - '0');
+            }
+            if (scale == 0 || scale > 9)
+                return -1;
+            for (int k = scale; k < 6; k++)
+                fraction *= 10;
+            micros += fraction;
+        }
+        if (i != offsetStart(b, from, to))
+            return -1;
+        return micros;
+    }
+
+    private static int offsetStart(char[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = b[i];
+            if (c == '+' || c == '-' || c == 'Z')
+                return i;
+        }
+        return to;
+    }
+
+    private static long day(char[] b, int from, int to, int end, String what) throws SQLException {
+        int m = digits2(b, end - 5);
+        int d = digits2(b, end - 2);
+        int y = year(b, from, end - 6);
+        if (eraStart(b, from, to) < to)
+            y = 1 - y;
+        if (m < 1 || m > 12 || d < 1 || d > monthLength(y, m))
+            throw error(b, from, to, what);
+        return toEpochDay(y, m, d);
+    }
+
+    private static int monthLength(long y, int m) {
+        if (m == 2)
+            return Math.floorMod(y, 4) == 0 && (Math.floorMod(y, 100) != 0 || Math.floorMod(y, 400) == 0) ? 29 : 28;
+        return m == 4 || m == 6 || m == 9 || m == 11 ? 30 : 31;
+    }
+
+    /**
+     * @return the index of the {@code " BC"} suffix, to if the value has none
+     */
+    private static int eraStart(char[] b, int from, int to) {
+        if (to - from > 3 && b[to - 3] == ' ' && b[to - 2] == 'B' && b[to - 1] == 'C')
+            return to - 3;
+        return to;
+    }
+
+    private static int year(char[] b, int from, int end) {
+        boolean negative = b[from] == '-';
+        int y = 0;
+        for (int i = negative ? from + 1 : from; i < end; i++)
+            y = y * 10 + (b[i] - '0');
+        return negative ? -y : y;
+    }
+
+    /**
+     * @return the two digit number at i, negative if those are not digits
+     */
+    private static int digits2(char[] b, int i) {
+        if (!isDigit(b[i]) || !isDigit(b[i + 1]))
+            return -1;
+        return (b[i] - '0') * 10 + (b[i + 1] - '0');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // days from civil / civil from days, http://howardhinnant.github.io/date_algorithms.html
+
+    private static long toEpochDay(long y, int m, int d) {
+        y -= m <= 2 ? 1 : 0;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * @return year, month and day packed as {@code year << 9 | month << 5 | day}
+     */
+    private static long civil(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long d = doy - (153 * mp + 2) / 5 + 1;
+        long m = mp < 10 ? mp + 3 : mp - 9;
+        long y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+        return y << 9 | m << 5 | d;
+    }
+
+    private static SQLException error(char[] b, int from, int to, String what) {
+        return new SQLException(String.format("%s is not a %s", new String(b, from, to - from), what));
+    }
+}
@@ -13,12 +13,14 @@ public class RedshiftDriver implements Driver {
     public static int MAJOR_VERSION = 0;
     public static int MINOR_VERSION = 1;
 
-    public static Pattern JDBC_URL = Pattern.compile("^jdbc:redshiftdata:@(?<id>[\\w-]+)/(?<db>[\\w-]+)(?<params>\\?[\\w-=_&/:\\.]+)$");
+    public static Pattern JDBC_URL = Pattern.compile("^jdbc:redshiftdata:@(?<id>[\\w-]+)/(?<db>[\\w-]+)(?<params>\\?[\\w-=_&/:\\.,%]+)$");
 
 
     @Override
     public Connection connect(String url, Properties info) throws SQLException {
-        return new RedshiftConnection(new RedshiftConfiguration(url,info));
+        RedshiftConnection conn = new RedshiftConnection(new RedshiftConfiguration(url,info));
+        RedshiftCatalogWarmup.getInstance().start(conn.getConfig());
+        return conn;
     }
 
     @Override
@@ -0,0 +1,180 @@
+package dev.chrisdd.redshiftdata;
+
+import software.amazon.awssdk.services.redshiftdata.model.SqlParameter;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs the rows of a prepared single row insert into multi row {@code INSERT ... VALUES (...),(...)}
+ * statements. Placeholders are renumbered {@code :1..:n} per statement and null or empty values are written
+ * as literals, each statement stays within the sql size and parameter count limits.
+ */
+final class RedshiftInsertBatch {
+    static final int MAX_SQL_BYTES = 100 * 1024;
+    /**
+     * Redshift limit of parameters in one prepared statement.
+     */
+    static final int MAX_PARAMETERS = 32767;
+
+    static final class Chunk {
+        final String sql;
+        final SqlParameter[] parameters;
+        final int rows;
+
+        Chunk(String sql, SqlParameter[] parameters, int rows) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.rows = rows;
+        }
+    }
+
+    private final RedshiftSqlShape shape;
+    private final String head;
+    private final String tail;
+    private final String[] segments;
+    private final int headBytes;
+    private final int rowBytes;
+
+    RedshiftInsertBatch(RedshiftSqlShape shape) {
+        if (!shape.isSingleRowInsert())
+            throw new IllegalArgumentException("not a single row insert");
+        String sql = shape.getSql();
+        this.shape = shape;
+        this.head = sql.substring(0, shape.getValuesStart());
+        this.tail = sql.substring(shape.getValuesEnd());
+        int k = shape.getPlaceholders().size();
+        this.segments = new String[k + 1];
+        int from = shape.getValuesStart();
+        for (int i = 0; i < k; i++) {
+            this.segments[i] = sql.substring(from, shape.getPlaceholderStart(i));
+            from = shape.getPlaceholderEnd(i);
+        }
+        this.segments[k] = sql.substring(from, shape.getValuesEnd());
+        this.headBytes = utf8Length(this.head) + utf8Length(this.tail);
+        int bytes = 1;
+        for (String segment : this.segments)
+            bytes += utf8Length(segment);
+        this.rowBytes = bytes;
+    }
+
+    /**
+     * @param rows bound parameters of each row, looked up by name
+     */
+    List<Chunk> pack(List<SqlParameter[]> rows) throws SQLException {
+        int perRow = this.shape.getPlaceholders().size();
+        List<Chunk> chunks = new ArrayList<>();
+        StringBuilder sql = new StringBuilder();
+        List<SqlParameter> params = new ArrayList<>();
+        int bytes = 0;
+        int count = 0;
+        for (SqlParameter[] row : rows) {
+            Map<String, SqlParameter> byName = byName(row);
+            int size = this.rowBytes + perRow * placeholderBytes(params.size() + perRow);
+            if (count > 0 && (bytes + size > MAX_SQL_BYTES || params.size() + perRow > MAX_PARAMETERS)) {
+                chunks.add(new Chunk(sql.append(this.tail).toString(), params.toArray(new SqlParameter[0]), count));
+                sql.setLength(0);
+                params.clear();
+                count = 0;
+            }
+            if (count == 0) {
+                sql.append(this.head);
+                bytes = this.headBytes;
+            } else {
+                sql.append(',');
+            }
+            this.appendRow(sql, params, byName);
+            bytes += size;
+            count++;
+        }
+        if (count > 0)
+            chunks.add(new Chunk(sql.append(this.tail).toString(), params.toArray(new SqlParameter[0]), count));
+        return chunks;
+    }
+
+    private void appendRow(StringBuilder sql, List<SqlParameter> params, Map<String, SqlParameter> row) throws SQLException {
+        List<String> placeholders = this.shape.getPlaceholders();
+        for (int i = 0; i < placeholders.size(); i++) {
+            sql.append(this.segments[i]);
+            String name = placeholders.get(i);
+            if (!row.containsKey(name))
+                throw new SQLException(String.format("no value for parameter %s", name));
+            SqlParameter p = row.get(name);
+            String literal = literal(p);
+            if (literal != null) {
+                sql.append(literal);
+                continue;
+            }
+            String renamed = String.valueOf(params.size() + 1);
+            params.add(p.toBuilder().name(renamed).build());
+            sql.append(':').append(renamed);
+        }
+        sql.append(this.segments[placeholders.size()]);
+    }
+
+    /**
+     * The Data API takes neither null nor empty values, those are written into the sql instead.
+     * @return the literal standing for the parameter, null if it can be sent as is
+     */
+    static String literal(SqlParameter p) {
+        if (p == null || p.value() == null)
+            return "NULL";
+        if (p.value().isEmpty())
+            return "''";
+        return null;
+    }
+
+    /**
+     * Binds one row to any statement, writing the values {@link #literal} covers into the sql.
+     */
+    static Chunk single(RedshiftSqlShape shape, SqlParameter[] row) {
+        boolean inline = false;
+        for (SqlParameter p : row)
+            inline |= literal(p) != null;
+        if (!inline)
+            return new Chunk(shape.getSql(), row, 1);
+        Map<String, SqlParameter> byName = byName(row);
+        String sql = shape.getSql();
+        StringBuilder b = new StringBuilder(sql.length());
+        int from = 0;
+        for (int i = 0; i < shape.getPlaceholders().size(); i++) {
+            String name = shape.getPlaceholders().get(i);
+            String literal = byName.containsKey(name) ? literal(byName.get(name)) : null;
+            if (literal == null)
+                continue;
+            b.append(sql, from, shape.getPlaceholderStart(i)).append(literal);
+            from = shape.getPlaceholderEnd(i);
+        }
+        b.append(sql, from, sql.length());
+        List<SqlParameter> params = new ArrayList<>(row.length);
+        for (SqlParameter p : row) {
+            if (literal(p) == null)
+                params.add(p);
+        }
+        return new Chunk(b.toString(), params.toArray(new SqlParameter[0]), 1);
+    }
+
+    private static Map<String, SqlParameter> byName(SqlParameter[] row) {
+        Map<String, SqlParameter> m = new HashMap<>();
+        for (SqlParameter p : row) {
+            if (p != null)
+                m.put(p.name(), p);
+        }
+        return m;
+    }
+
+    /**
+     * @return upper bound of the bytes written for a placeholder numbered up to n, or for NULL
+     */
+    private static int placeholderBytes(int n) {
+        return Math.max(4, 1 + String.valueOf(n).length());
+    }
+
+    private static int utf8Length(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,155 @@
+package dev.chrisdd.redshiftdata;
+
+import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads the pages of a statement result on a background thread, up to {@code depth} pages ahead
+ * of the reader. The reader only waits on the network when it catches up with the download,
+ * that waiting time is counted as stall time. A download kept waiting for room longer than
+ * {@link #MAX_IDLE_MILLIS}, by a slow reader or one that was dropped without closing, stops and
+ * leaves the remaining pages to the reader.
+ */
+class RedshiftPagePrefetcher implements Iterator<GetStatementResultResponse>, AutoCloseable, PrefetchStats {
+    static final long MAX_IDLE_MILLIS = 30_000;
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "redshiftdata-prefetch-" + THREADS.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+    private static final Object END = new Object();
+
+    private final Iterator<GetStatementResultResponse> source;
+    private final BlockingQueue<Object> queue;
+    private final Future<?> producer;
+    private final AtomicInteger fetchedPages = new AtomicInteger();
+    private volatile boolean closed;
+    // set when the download stopped early, the reader then takes the rest from the source itself
+    private volatile boolean handedBack;
+    // what the download held when it stopped, read after the queue is drained
+    private volatile Object leftover;
+    private Object head;
+    private int readPages;
+    private int stalls;
+    private long stallNanos;
+
+    RedshiftPagePrefetcher(Iterator<GetStatementResultResponse> source, int depth) {
+        this.source = source;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, depth));
+        this.producer = EXECUTOR.submit(this::produce);
+    }
+
+    private void produce() {
+        try {
+            Object item;
+            do {
+                item = this.fetch();
+                if (!this.queue.offer(item, MAX_IDLE_MILLIS, TimeUnit.MILLISECONDS)) {
+                    this.leftover = item;
+                    this.handedBack = true;
+                    return;
+                }
+            } while (item instanceof GetStatementResultResponse && !this.closed);
+        } catch (InterruptedException ignored) {
+            // closed by the reader
+        }
+    }
+
+    /**
+     * @return the next page, {@link #END} or the error getting it
+     */
+    private Object fetch() {
+        try {
+            if (!this.source.hasNext())
+                return END;
+            GetStatementResultResponse page = this.source.next();
+            this.fetchedPages.incrementAndGet();
+            return page;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.closed)
+            return false;
+        if (this.head == null)
+            this.head = take();
+        if (this.head instanceof RuntimeException)
+            throw (RuntimeException) this.head;
+        return this.head != END;
+    }
+
+    @Override
+    public GetStatementResultResponse next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        GetStatementResultResponse page = (GetStatementResultResponse) this.head;
+        this.head = null;
+        this.readPages++;
+        return page;
+    }
+
+    private Object take() {
+        Object o = this.queue.poll();
+        if (o != null)
+            return o;
+        long start = System.nanoTime();
+        this.stalls++;
+        try {
+            while (true) {
+                if (this.handedBack) {
+                    o = this.queue.poll();
+                    if (o != null)
+                        return o;
+                    o = this.leftover;
+                    this.leftover = null;
+                    return o != null ? o : this.fetch();
+                }
+                // short waits, the download may hand back while the queue is being drained
+                o = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (o != null)
+                    return o;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while waiting for the next result page");
+        } finally {
+            this.stallNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        this.producer.cancel(true);
+        this.queue.clear();
+    }
+
+    @Override
+    public int getFetchedPages() {
+        return this.fetchedPages.get();
+    }
+
+    @Override
+    public int getReadPages() {
+        return this.readPages;
+    }
+
+    @Override
+    public int getStalls() {
+        return this.stalls;
+    }
+
+    @Override
+    public long getStallNanos() {
+        return this.stallNanos;
+    }
+}
@@ -0,0 +1,214 @@
+package dev.chrisdd.redshiftdata;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Converts a bound java value to the text of a Data API parameter, the server casts it to the column type.
+ * The instances are stateless and shared, a prepared statement keeps the one of each parameter next to its value.
+ * Dates and times are written digit by digit instead of through a formatter.
+ */
+abstract class RedshiftParameterEncoder {
+    static final RedshiftParameterEncoder STRING = new RedshiftParameterEncoder() {
+        @Override
+        String encode(Object value) {
+            return (String) value;
+        }
+    };
+    static final RedshiftParameterEncoder TEXT = new RedshiftParameterEncoder() {
+        @Override
+        String encode(Object value) {
+            return value.toString();
+        }
+    };
+    static final RedshiftParameterEncoder BIG_DECIMAL = new RedshiftParameterEncoder() {
+        @Override
+        String encode(Object value) {
+            return ((BigDecimal) value).toPlainString();
+        }
+    };
+    @SuppressWarnings("deprecation")
+    static final RedshiftParameterEncoder DATE = new RedshiftParameterEncoder() {
+        @Override
+        String encode(Object value) {
+            Date d = (Date) value;
+            char[] b = new char[10];
+            return date(b, 0, d.getYear() + 1900, d.getMonth() + 1, d.getDate()) ? new String(b) : d.toString();
+        }
+    };
+    @SuppressWarnings("deprecation")
+    static final RedshiftParameterEncoder TIME = new RedshiftParameterEncoder() {
+        @Override
+        String encode(Object value) {
+            Time t = (Time) value;
+            char[] b = new char[15];
+            int n = time(b, 0, t.getHours(), t.getMinutes(), t.getSeconds(), (int) Math.floorMod(t.getTime(), 1000L) * 1_000_000);
+            return new String(b, 0, n);
+        }
+    };
+    @SuppressWarnings("deprecation")
+    static final RedshiftParameterEncoder TIMESTAMP = new RedshiftParameterEncoder() {
+        @Override
+        String encode(Object value) {
+            Timestamp t = (Timestamp) value;
+            char[] b = new char[26];
+            if (!date(b, 0, t.getYear() + 1900, t.getMonth() + 1, t.getDate()))
+                return t.toString();
+            b[10] = ' ';
+            return new String(b, 0, time(b, 11, t.getHours(), t.getMinutes(), t.getSeconds(), t.getNanos()));
+        }
+    };
+    static final RedshiftParameterEncoder LOCAL_DATE = new RedshiftParameterEncoder() {
+        @Override
+        String encode(Object value) {
+            LocalDate d = (LocalDate) value;
+            char[] b = new char[10];
+            return date(b, 0, d.getYear(), d.getMonthValue(), d.getDayOfMonth()) ? new String(b) : d.toString();
+        }
+    };
+    static final RedshiftParameterEncoder LOCAL_TIME = new RedshiftParameterEncoder() {
+        @Override
+        String encode(Object value) {
+            LocalTime t = (LocalTime) value;
+            char[] b = new char[15];
+            return new String(b, 0, time(b, 0, t.getHour(), t.getMinute(), t.getSecond(), t.getNano()));
+        }
+    };
+    static final RedshiftParameterEncoder LOCAL_DATE_TIME = new RedshiftParameterEncoder() {
+        @Override
+        String encode(Object value) {
+            LocalDateTime t = (LocalDateTime) value;
+            char[] b = new char[26];
+            return localDateTime(b, t) ? new String(b, 0, time(b, 11, t.getHour(), t.getMinute(), t.getSecond(), t.getNano())) : t.toString();
+        }
+    };
+    static final RedshiftParameterEncoder OFFSET_DATE_TIME = new RedshiftParameterEncoder() {
+        @Override
+        String encode(Object value) {
+            OffsetDateTime t = (OffsetDateTime) value;
+            LocalDateTime local = t.toLocalDateTime();
+            char[] b = new char[35];
+            if (!localDateTime(b, local))
+                return t.toString();
+            int n = time(b, 11, local.getHour(), local.getMinute(), local.getSecond(), local.getNano());
+            return new String(b, 0, offset(b, n, t.getOffset().getTotalSeconds()));
+        }
+    };
+    static final RedshiftParameterEncoder INSTANT = new RedshiftParameterEncoder() {
+        @Override
+        String encode(Object value) {
+            return OFFSET_DATE_TIME.encode(((Instant) value).atOffset(ZoneOffset.UTC));
+        }
+    };
+    static final RedshiftParameterEncoder INSTANT_OF_DATE = new RedshiftParameterEncoder() {
+        @Override
+        String encode(Object value) {
+            return INSTANT.encode(((java.util.Date) value).toInstant());
+        }
+    };
+
+    abstract String encode(Object value);
+
+    /**
+     * Encoder of a value passed to {@code setObject}.
+     */
+    static RedshiftParameterEncoder forValue(Object value) throws SQLException {
+        if (value instanceof String)
+            return STRING;
+        if (value instanceof BigDecimal)
+            return BIG_DECIMAL;
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof java.util.UUID)
+            return TEXT;
+        if (value instanceof Timestamp)
+            return TIMESTAMP;
+        if (value instanceof Date)
+            return DATE;
+        if (value instanceof Time)
+            return TIME;
+        if (value instanceof java.util.Date)
+            return INSTANT_OF_DATE;
+        if (value instanceof LocalDate)
+            return LOCAL_DATE;
+        if (value instanceof LocalTime)
+            return LOCAL_TIME;
+        if (value instanceof LocalDateTime)
+            return LOCAL_DATE_TIME;
+        if (value instanceof OffsetDateTime)
+            return OFFSET_DATE_TIME;
+        if (value instanceof Instant)
+            return INSTANT;
+        throw new SQLException(String.format("unsupported parameter type %s", value.getClass().getName()));
+    }
+
+    private static boolean localDateTime(char[] b, LocalDateTime t) {
+        if (!date(b, 0, t.getYear(), t.getMonthValue(), t.getDayOfMonth()))
+            return false;
+        b[10] = ' ';
+        return true;
+    }
+
+    /**
+     * Writes yyyy-MM-dd, years outside 1 to 9999 are left to the caller.
+     */
+    private static boolean date(char[] b, int at, int year, int month, int day) {
+        if (year < 1 || year > 9999)
+            return false;
+        digits(b, at, year, 4);
+        b[at + 4] = '-';
+        digits(b, at + 5, month, 2);
+        b[at + 7] = '-';
+        digits(b, at + 8, day, 2);
+        return true;
+    }
+
+    /**
+     * Writes HH:mm:ss and the fraction in micros without trailing zeros, Redshift keeps no more.
+     * @return offset after the last character
+     */
+    private static int time(char[] b, int at, int hour, int minute, int second, int nanos) {
+        digits(b, at, hour, 2);
+        b[at + 2] = ':';
+        digits(b, at + 3, minute, 2);
+        b[at + 5] = ':';
+        digits(b, at + 6, second, 2);
+        int end = at + 8;
+        int micros = nanos / 1000;
+        if (micros == 0)
+            return end;
+        b[end] = '.';
+        digits(b, end + 1, micros, 6);
+        end += 7;
+        while (b[end - 1] == '0')
+            end--;
+        return end;
+    }
+
+    private static int offset(char[] b, int at, int totalSeconds) {
+        int abs = Math.abs(totalSeconds);
+        b[at] = totalSeconds < 0 ? '-' : '+';
+        digits(b, at + 1, abs / 3600, 2);
+        b[at + 3] = ':';
+        digits(b, at + 4, abs / 60 % 60, 2);
+        if (abs % 60 == 0)
+            return at + 6;
+        b[at + 6] = ':';
+        digits(b, at + 7, abs % 60, 2);
+        return at + 9;
+    }
+
+    private static void digits(char[] b, int at, int value, int width) {
+        for (int i = at + width - 1; i >= at; i--) {
+            b[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package dev.chrisdd.redshiftdata;
+
+import java.sql.ParameterMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Parameters of a prepared statement as found in its sql. The Data API sends every value as text
+ * and leaves the typing to the server, so each parameter is reported as a nullable varchar.
+ */
+class RedshiftParameterMetadata implements ParameterMetaData {
+    private final List<String> names;
+
+    RedshiftParameterMetadata(RedshiftSqlShape shape) {
+        this.names = shape.getParameterNames();
+    }
+
+    private void check(int param) throws SQLException {
+        if (param < 1 || param > this.names.size())
+            throw new SQLException(String.format("invalid parameter index %d", param));
+    }
+
+    /**
+     * @return name of the parameter in the sql, without the colon
+     */
+    public String getParameterName(int param) throws SQLException {
+        check(param);
+        return this.names.get(param - 1);
+    }
+
+    @Override
+    public int getParameterCount() throws SQLException {
+        return this.names.size();
+    }
+
+    @Override
+    public int isNullable(int param) throws SQLException {
+        check(param);
+        return ParameterMetaData.parameterNullable;
+    }
+
+    @Override
+    public boolean isSigned(int param) throws SQLException {
+        check(param);
+        return false;
+    }
+
+    @Override
+    public int getPrecision(int param) throws SQLException {
+        check(param);
+        return 0;
+    }
+
+    @Override
+    public int getScale(int param) throws SQLException {
+        check(param);
+        return 0;
+    }
+
+    @Override
+    public int getParameterType(int param) throws SQLException {
+        check(param);
+        return Types.VARCHAR;
+    }
+
+    @Override
+    public String getParameterTypeName(int param) throws SQLException {
+        check(param);
+        return "varchar";
+    }
+
+    @Override
+    public String getParameterClassName(int param) throws SQLException {
+        check(param);
+        return String.class.getName();
+    }
+
+    @Override
+    public int getParameterMode(int param) throws SQLException {
+        check(param);
+        return ParameterMetaData.parameterModeIn;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (isWrapperFor(iface))
+            return iface.cast(this);
+        throw new SQLException(String.format("%s is not a wrapper for %s",getClass().getName(),iface.getName()));
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isAssignableFrom(getClass());
+    }
+}
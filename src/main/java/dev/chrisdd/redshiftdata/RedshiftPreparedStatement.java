@@ -1,6 +1,5 @@
 package dev.chrisdd.redshiftdata;
 
-import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
 import software.amazon.awssdk.services.redshiftdata.model.SqlParameter;
 
 import java.io.InputStream;
@@ -9,122 +8,171 @@ import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.*;
 import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 public class RedshiftPreparedStatement extends RedshiftStatement implements PreparedStatement {
     private final String sql;
-    private ResultSet rs;
 
+    private final RedshiftSqlShape shape;
+    // per parameter, the bound value and its encoder, encoded into parameters on the next execution
+    private final String[] names;
+    private final Object[] values;
+    private final RedshiftParameterEncoder[] encoders;
+    private final boolean[] bound;
     private final SqlParameter[] parameters;
-
-    private int parameterCount(String sql){
-        // lets do a silly check
-        int count =0;
-        for (int i=0;i<sql.length();i++){
-            if (sql.charAt(i) != ':')
+    private final List<SqlParameter[]> batch = new ArrayList<>();
+    private ResultSetMetaData resultMetadata;
+
+    /**
+     * Nothing is sent to the service here, the sql is only scanned for its parameters.
+     * Result metadata is looked up when first asked for, see {@link #getMetaData()}.
+     * Parameters are written either {@code :name} or as jdbc {@code ?}, which are numbered {@code :1..:n}.
+     */
+    public RedshiftPreparedStatement(RedshiftConnection conn, String sql) throws SQLException {
+        super(conn);
+        this.sql = sql;
+        this.shape = RedshiftSqlShape.ofPrepared(sql);
+        this.names = this.shape.getParameterNames().toArray(new String[0]);
+        this.values = new Object[this.names.length];
+        this.encoders = new RedshiftParameterEncoder[this.names.length];
+        this.bound = new boolean[this.names.length];
+        this.parameters = new SqlParameter[this.names.length];
+    }
+
+    /**
+     * Keeps the value of a parameter, the encoded form of an unchanged value is reused.
+     * {@link java.util.Date} values are mutable and always encoded again.
+     */
+    private void bind(int parameterIndex, Object value, RedshiftParameterEncoder encoder) throws SQLException {
+        if (parameterIndex < 1 || parameterIndex > this.names.length)
+            throw new SQLException(String.format("invalid parameter index %d", parameterIndex));
+        int i = parameterIndex - 1;
+        if (this.bound[i] && this.encoders[i] == encoder && Objects.equals(this.values[i], value) && !(value instanceof java.util.Date))
+            return;
+        this.values[i] = value;
+        this.encoders[i] = encoder;
+        this.bound[i] = true;
+        this.parameters[i] = null;
+    }
+
+    /**
+     * @param requireAll fail on unbound parameters, otherwise they are sent as null
+     * @return the parameters of the next execution, only values bound since the last one are encoded
+     */
+    private SqlParameter[] encodeParameters(boolean requireAll) throws SQLException {
+        SqlParameter[] params = this.parameters;
+        for (int i = 0; i < this.parameters.length; i++) {
+            if (this.parameters[i] != null)
                 continue;
-            if ( (i+1) == sql.length())
+            if (!this.bound[i]) {
+                if (requireAll)
+                    throw new SQLException(String.format("parameter %d is not set", i + 1));
+                if (params == this.parameters)
+                    params = this.parameters.clone();
+                params[i] = SqlParameter.builder().name(this.names[i]).build();
                 continue;
-            if (Character.isDigit(sql.charAt(i)))
-                count +=1;
+            }
+            Object value = this.values[i];
+            this.parameters[i] = SqlParameter.builder()
+                    .name(this.names[i])
+                    .value(value == null ? null : this.encoders[i].encode(value))
+                    .build();
+            params[i] = this.parameters[i];
         }
-        return count;
+        return params;
     }
 
-    public RedshiftPreparedStatement(RedshiftConnection conn, String sql) throws SQLException {
-        super(conn);
-        this.sql = sql;
-        this.parameters = new SqlParameter[parameterCount(sql)];
-        for (int i=0;i<parameters.length;i++)
-            this.parameters[i] = SqlParameter.builder().name(String.valueOf(i+1)).value("").build();
-        this.executeQuery();
+    private boolean executeBound() throws SQLException {
+        RedshiftInsertBatch.Chunk bound = RedshiftInsertBatch.single(this.shape, this.encodeParameters(true));
+        return this.executeHandle(bound.sql, this.shape.getKeyword(), bound.parameters);
     }
 
     @Override
     public ResultSet executeQuery() throws SQLException {
-        try {
-            Optional<Iterator<GetStatementResultResponse>> resp = super.conn.executeQuery(this.sql,this.parameters);
-            if (resp.isPresent())
-                    this.rs = new RedshiftResultSet(this,resp.get());
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+        if (!this.executeBound()) {
+            throw new SQLException("no result set from query");
         }
-        return this.rs;
+        return this.resultSet;
     }
 
     @Override
     public int executeUpdate() throws SQLException {
-        try {
-            return (int)super.conn.executeSql(this.sql,this.parameters);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        this.executeBound();
+        return (int)Math.max(this.handle.getResultRows(),0);
     }
 
     @Override
     public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        this.bind(parameterIndex, null, null);
     }
 
     @Override
     public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.TEXT);
     }
 
     @Override
     public void setByte(int parameterIndex, byte x) throws SQLException {
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.TEXT);
     }
 
     @Override
     public void setShort(int parameterIndex, short x) throws SQLException {
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.TEXT);
     }
 
     @Override
     public void setInt(int parameterIndex, int x) throws SQLException {
-
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.TEXT);
     }
 
     @Override
     public void setLong(int parameterIndex, long x) throws SQLException {
-
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.TEXT);
     }
 
     @Override
     public void setFloat(int parameterIndex, float x) throws SQLException {
-
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.TEXT);
     }
 
     @Override
     public void setDouble(int parameterIndex, double x) throws SQLException {
-
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.TEXT);
     }
 
     @Override
     public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
-
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.BIG_DECIMAL);
     }
 
     @Override
     public void setString(int parameterIndex, String x) throws SQLException {
-
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.STRING);
     }
 
     @Override
     public void setBytes(int parameterIndex, byte[] x) throws SQLException {
-
+        throw new SQLFeatureNotSupportedException("not supported bytes");
     }
 
     @Override
     public void setDate(int parameterIndex, Date x) throws SQLException {
-
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.DATE);
     }
 
     @Override
     public void setTime(int parameterIndex, Time x) throws SQLException {
-
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.TIME);
     }
 
     @Override
     public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
-
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.TIMESTAMP);
     }
 
     @Override
@@ -144,27 +192,100 @@ public class RedshiftPreparedStatement extends RedshiftStatement implements Prep
 
     @Override
     public void clearParameters() throws SQLException {
-
+        Arrays.fill(this.values, null);
+        Arrays.fill(this.encoders, null);
+        Arrays.fill(this.bound, false);
+        Arrays.fill(this.parameters, null);
     }
 
     @Override
     public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
-        this.parameters[parameterIndex] = SqlParameter.builder().name(String.valueOf(parameterIndex)).value(String.valueOf(x)).build();
+        this.setObject(parameterIndex, x);
     }
 
     @Override
     public void setObject(int parameterIndex, Object x) throws SQLException {
-        setObject(parameterIndex,x,-1);
+        this.bind(parameterIndex, x, x == null ? null : RedshiftParameterEncoder.forValue(x));
     }
 
     @Override
     public boolean execute() throws SQLException {
-        return this.executeQuery() != null;
+        return this.executeBound();
     }
 
     @Override
     public void addBatch() throws SQLException {
+        this.batch.add(this.encodeParameters(true).clone());
+    }
 
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        throw new SQLException("addBatch(String) is not supported on a prepared statement");
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        this.batch.clear();
+    }
+
+    /**
+     * Rows of a single row insert are sent as multi row inserts, anything else as one statement per row.
+     * Up to {@code batchConcurrency} statements are in flight at once.
+     */
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        if (this.batch.isEmpty())
+            return new long[0];
+        List<SqlParameter[]> rows = new ArrayList<>(this.batch);
+        this.batch.clear();
+        List<RedshiftInsertBatch.Chunk> chunks;
+        if (this.shape.isSingleRowInsert()) {
+            chunks = new RedshiftInsertBatch(this.shape).pack(rows);
+        } else {
+            chunks = new ArrayList<>(rows.size());
+            for (SqlParameter[] row : rows)
+                chunks.add(RedshiftInsertBatch.single(this.shape, row));
+        }
+        return this.executeChunks(chunks, rows.size());
+    }
+
+    private long[] executeChunks(List<RedshiftInsertBatch.Chunk> chunks, int rows) throws SQLException {
+        int concurrency = this.conn.getConfig().getBatchConcurrency();
+        long[] counts = new long[rows];
+        Arrays.fill(counts, Statement.EXECUTE_FAILED);
+        List<CompletableFuture<Long>> inFlight = new ArrayList<>();
+        SQLException failure = null;
+        int failedAt = -1;
+        int submitted = 0;
+        int done = 0;
+        int row = 0;
+        while (done < chunks.size()) {
+            if (failure == null && submitted < chunks.size() && inFlight.size() < concurrency) {
+                RedshiftInsertBatch.Chunk chunk = chunks.get(submitted++);
+                inFlight.add(this.conn.executeUpdateAsync(chunk.sql, chunk.parameters));
+                continue;
+            }
+            if (inFlight.isEmpty())
+                break;
+            RedshiftInsertBatch.Chunk chunk = chunks.get(done++);
+            try {
+                long affected = inFlight.remove(0).get();
+                for (int i = 0; i < chunk.rows; i++)
+                    counts[row + i] = chunk.rows == 1 ? Math.max(affected, Statement.SUCCESS_NO_INFO) : affected == chunk.rows ? 1 : Statement.SUCCESS_NO_INFO;
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = RedshiftConnection.asSQLException(e.getCause());
+                    failedAt = row;
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            row += chunk.rows;
+        }
+        if (failure == null)
+            return counts;
+        long[] reported = concurrency == 1 ? Arrays.copyOf(counts, failedAt) : counts;
+        throw new BatchUpdateException(failure.getMessage(), failure.getSQLState(), failure.getErrorCode(), reported, failure);
     }
 
     @Override
@@ -194,37 +315,77 @@ public class RedshiftPreparedStatement extends RedshiftStatement implements Prep
 
     @Override
     public ResultSetMetaData getMetaData() throws SQLException {
-        return this.rs.getMetaData();
+        if (this.resultSet != null)
+            this.resultMetadata = this.resultSet.getMetaData();
+        if (this.resultMetadata == null && this.shape.isQuery())
+            this.resultMetadata = this.describeResult();
+        return this.resultMetadata;
+    }
+
+    /**
+     * Columns of the query without reading any of its rows, using the parameters bound so far.
+     */
+    private ResultSetMetaData describeResult() throws SQLException {
+        // show and explain can not be used as a subquery
+        if (this.shape.getKeyword().equals("show") || this.shape.getKeyword().equals("explain"))
+            return null;
+        String query = this.shape.getSql().trim();
+        while (query.endsWith(";"))
+            query = query.substring(0, query.length() - 1).trim();
+        RedshiftStatementHandle handle;
+        try {
+            RedshiftInsertBatch.Chunk bound = RedshiftInsertBatch.single(RedshiftSqlShape.of("select * from (" + query + "\n) as q limit 0"), this.encodeParameters(false));
+            handle = this.conn.execute(bound.sql, bound.parameters);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        if (!handle.hasResultSet())
+            return null;
+        try (RedshiftResultSet rs = new RedshiftResultSet(this, handle, this.conn.getStatementResult(handle))) {
+            return rs.getMetaData();
+        }
     }
 
     @Override
     public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
-
+        if (x == null || cal == null) {
+            this.setDate(parameterIndex, x);
+            return;
+        }
+        this.bind(parameterIndex, Instant.ofEpochMilli(x.getTime()).atZone(cal.getTimeZone().toZoneId()).toLocalDate(), RedshiftParameterEncoder.LOCAL_DATE);
     }
 
     @Override
     public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
-
+        if (x == null || cal == null) {
+            this.setTime(parameterIndex, x);
+            return;
+        }
+        this.bind(parameterIndex, Instant.ofEpochMilli(x.getTime()).atZone(cal.getTimeZone().toZoneId()).toLocalTime(), RedshiftParameterEncoder.LOCAL_TIME);
     }
 
     @Override
     public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
-
+        if (x == null || cal == null) {
+            this.setTimestamp(parameterIndex, x);
+            return;
+        }
+        this.bind(parameterIndex, LocalDateTime.ofInstant(x.toInstant(), cal.getTimeZone().toZoneId()), RedshiftParameterEncoder.LOCAL_DATE_TIME);
     }
 
     @Override
     public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
-
+        this.bind(parameterIndex, null, null);
     }
 
     @Override
     public void setURL(int parameterIndex, URL x) throws SQLException {
-
+        this.bind(parameterIndex, x, RedshiftParameterEncoder.TEXT);
     }
 
     @Override
     public ParameterMetaData getParameterMetaData() throws SQLException {
-        return null;
+        return new RedshiftParameterMetadata(this.shape);
     }
 
     @Override
@@ -234,7 +395,7 @@ public class RedshiftPreparedStatement extends RedshiftStatement implements Prep
 
     @Override
     public void setNString(int parameterIndex, String value) throws SQLException {
-
+        this.bind(parameterIndex, value, RedshiftParameterEncoder.STRING);
     }
 
     @Override
@@ -269,7 +430,7 @@ public class RedshiftPreparedStatement extends RedshiftStatement implements Prep
 
     @Override
     public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
-
+        this.setObject(parameterIndex, x);
     }
 
     @Override
@@ -0,0 +1,148 @@
+package dev.chrisdd.redshiftdata;
+
+import dev.chrisdd.redshiftdata.config.RedshiftConfiguration;
+import software.amazon.awssdk.services.redshiftdata.model.Field;
+import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
+import software.amazon.awssdk.services.redshiftdata.model.SqlParameter;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Driver-wide cache of query results for connections with a {@code resultCacheTtl}. Results are keyed by
+ * the connection's target and user, the normalized sql and the bound parameters, and kept as the downloaded
+ * pages, each hit reads them through a cursor of its own. Only select and with statements are cached,
+ * whether their results may be served stale for the ttl is up to the application.
+ */
+class RedshiftResultCache {
+    static final String MAX_BYTES_PROPERTY = "redshiftdata.resultCacheMaxBytes";
+
+    private static final RedshiftResultCache INSTANCE = new RedshiftResultCache(Long.getLong(MAX_BYTES_PROPERTY, 64L << 20));
+
+    /**
+     * A finished statement and, if it was small enough to keep, all its result pages.
+     */
+    static final class CachedResult {
+        private final RedshiftStatementHandle handle;
+        private final List<GetStatementResultResponse> pages;
+        private final long bytes;
+
+        CachedResult(RedshiftStatementHandle handle, List<GetStatementResultResponse> pages, long bytes) {
+            this.handle = handle;
+            this.pages = pages;
+            this.bytes = bytes;
+        }
+
+        RedshiftStatementHandle getHandle() {
+            return handle;
+        }
+
+        /**
+         * @return a new cursor over the kept pages, null if the pages were not kept
+         */
+        Iterator<GetStatementResultResponse> pages() {
+            return this.pages == null ? null : this.pages.iterator();
+        }
+    }
+
+    private final long maxBytes;
+    private final RedshiftCache<List<Object>, CachedResult> cache;
+
+    static RedshiftResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    RedshiftResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.cache = new RedshiftCache<>(maxBytes, r -> r.pages == null ? -1 : r.bytes);
+    }
+
+    /**
+     * @param keyword first word of the statement, see {@link RedshiftSqlShape#getKeyword()}
+     */
+    static boolean isCacheable(RedshiftConfiguration config, String keyword) {
+        if (config.getResultCacheTtl() <= 0)
+            return false;
+        return keyword.equals("select") || keyword.equals("with");
+    }
+
+    /**
+     * Returns the cached result of the query or runs it, concurrent callers of the same query share one run.
+     */
+    CachedResult execute(RedshiftConnection conn, String sql, SqlParameter[] params) throws SQLException {
+        RedshiftConfiguration config = conn.getConfig();
+        List<Object> key = key(config, sql, params);
+        return this.cache.get(key, config.getResultCacheTtl(), () -> this.load(conn, sql, params));
+    }
+
+    /**
+     * Identifies the result of a query, equal for the same target, user, normalized sql and parameters.
+     */
+    static List<Object> key(RedshiftConfiguration config, String sql, SqlParameter[] params) {
+        return Arrays.asList(
+                config.getTargetKey(),
+                SqlFingerprint.normalize(sql),
+                new ArrayList<>(Arrays.asList(params)));
+    }
+
+    private CachedResult load(RedshiftConnection conn, String sql, SqlParameter[] params) throws SQLException {
+        RedshiftStatementHandle handle;
+        try {
+            handle = conn.execute(sql, params);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        // results too large to keep are left to the caller to stream
+        if (!handle.hasResultSet() || handle.getResultSize() > this.maxBytes / 4)
+            return new CachedResult(handle, null, 0);
+        List<GetStatementResultResponse> pages = new ArrayList<>();
+        long bytes = 0;
+        Iterator<GetStatementResultResponse> it = conn.getStatementResult(handle);
+        while (it.hasNext()) {
+            GetStatementResultResponse page = it.next();
+            pages.add(page);
+            bytes += weigh(page);
+        }
+        return new CachedResult(handle, Collections.unmodifiableList(pages), bytes);
+    }
+
+    /**
+     * Rough heap size of a page, an object header and reference per field plus the text it holds.
+     */
+    private static long weigh(GetStatementResultResponse page) {
+        long bytes = 64;
+        for (List<Field> record : page.records()) {
+            bytes += 32 + 16L * record.size();
+            for (Field f : record) {
+                bytes += 48;
+                if (f.stringValue() != null)
+                    bytes += 40 + 2L * f.stringValue().length();
+            }
+        }
+        return bytes;
+    }
+
+    void clear() {
+        this.cache.clear();
+    }
+
+    int size() {
+        return this.cache.size();
+    }
+
+    long getBytes() {
+        return this.cache.getBytes();
+    }
+
+    long getHits() {
+        return this.cache.getHits();
+    }
+
+    long getMisses() {
+        return this.cache.getMisses();
+    }
+}
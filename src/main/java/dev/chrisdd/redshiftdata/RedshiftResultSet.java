@@ -1,176 +1,232 @@
 package dev.chrisdd.redshiftdata;
 
-import software.amazon.awssdk.services.redshiftdata.model.Field;
 import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
 import software.amazon.awssdk.services.redshiftdata.paginators.GetStatementResultIterable;
 
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.net.URL;
 import java.sql.*;
 import java.sql.Date;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.chrono.IsoChronology;
-import java.time.format.*;
-import java.time.temporal.ChronoField;
+import java.time.OffsetDateTime;
 import java.util.*;
 
-class RedshiftResultSet implements ResultSet {
-
-    //        "stringValue": "2023-10-23"
-    //        "stringValue": "09:26:38.779304+00"
-    //        "stringValue": "2023-10-23 09:26:38.779304+00"
-    public static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
-    public static final DateTimeFormatter TIMESTAMP_FORMATTER = new DateTimeFormatterBuilder()
-            //        "stringValue": "2023-10-23 09:26:38.779304+00"
-            .appendValue(ChronoField.YEAR, 4, 10, SignStyle.EXCEEDS_PAD)
-            .appendLiteral('-')
-            .appendValue(ChronoField.MONTH_OF_YEAR, 2)
-            .appendLiteral('-')
-            .appendValue(ChronoField.DAY_OF_MONTH, 2)
-            .appendLiteral(" ")
-            .appendValue(ChronoField.HOUR_OF_DAY,2)
-            .appendLiteral(":")
-            .appendValue(ChronoField.MINUTE_OF_DAY,2)
-            .appendLiteral(":")
-            .appendValue(ChronoField.SECOND_OF_DAY,2)
-            .appendLiteral(".")
-            .appendValue(ChronoField.MICRO_OF_SECOND)
-            .appendZoneOrOffsetId()
-            .toFormatter();
-    public static final DateTimeFormatter DATE_FORMATTER =new DateTimeFormatterBuilder()
-            .appendValue(ChronoField.YEAR, 4, 10, SignStyle.EXCEEDS_PAD)
-            .appendLiteral('-')
-            .appendValue(ChronoField.MONTH_OF_YEAR, 2)
-            .appendLiteral('-')
-            .appendValue(ChronoField.DAY_OF_MONTH, 2)
-            .toFormatter();
-
+/**
+ * Also reports the page download of the result through {@link PrefetchStats}.
+ */
+class RedshiftResultSet implements ResultSet, PrefetchStats {
 
     private final RedshiftStatement stmt;
-    private List<List<Field>> resultRows;
-
-    private List<Field> currentRow;
+    private final RedshiftStatementHandle handle;
+    private Iterator<GetStatementResultResponse> results;
+    // the download behind results, kept for its counters after close
+    private RedshiftPagePrefetcher prefetcher;
+    // pages still in memory, oldest first
+    private final ArrayDeque<RedshiftColumnarPage> pages = new ArrayDeque<>();
+    private int maxPages = Integer.MAX_VALUE;
+    private int fetchSize;
+    private int loadedRows;
+
+    private RedshiftColumnarPage currentPage;
+    private int pageRow;
     private int totalResultRows;
     private int rowIndex;
     private int lastColumn;
 
     private RedshiftResultSetMetadata metadata;
+    private RedshiftColumnDecoder[] decoders;
+    // label -> 1 based column index, built on the first lookup by label
+    private Map<String, Integer> columnIndex;
+    private String lastLabel;
+    private int lastLabelIndex;
 
-    private Object fieldToObject(Field fld) throws SQLException{
-        String fieldName = fld.type().name();
-        switch (fieldName) {
-            case "BLOB_VALUE":
-                return fld.blobValue();
-            case "BOOLEAN_VALUE":
-                return fld.booleanValue();
-            case "DOUBLE_VALUE":
-                return fld.doubleValue();
-            case "IS_NULL":
-                return null;
-            case "LONG_VALUE":
-                return fld.longValue();
-            case "STRING_VALUE":
-                return fld.stringValue();
-            default:
-                throw new SQLException("unhandled type " + fieldName);
+    private void processResponse(Iterator<GetStatementResultResponse> iter) throws SQLException {
+        // only the first page is read here, the rest is pulled as next() runs past the loaded rows
+        this.results = iter;
+        if (iter instanceof RedshiftPagePrefetcher)
+            this.prefetcher = (RedshiftPagePrefetcher) iter;
+        this.rowIndex=0;
+        if (fetchPage())
+            this.setFetchSize(this.fetchSize);
+    }
+
+    private boolean fetchPage() throws SQLException {
+        if (this.results == null || !this.results.hasNext())
+            return false;
+        GetStatementResultResponse resp = this.results.next();
+        // parse metadata in first response only
+        if (this.metadata == null) {
+            this.metadata = new RedshiftResultSetMetadata(resp);
+            this.decoders = this.metadata.getDecoders();
+            this.totalResultRows = Math.toIntExact(resp.totalNumRows());
         }
+        RedshiftColumnarPage page = new RedshiftColumnarPage(this.loadedRows, resp.records(), this.metadata.getColumnCount());
+        this.loadedRows += page.size();
+        this.pages.addLast(page);
+        while (this.pages.size() > this.maxPages)
+            this.pages.removeFirst();
+        return true;
     }
 
-    private void processResponse(Iterator<GetStatementResultResponse> iter) throws SQLException {
-        List<List<Field>> rows = new ArrayList<>();
-
-        while (iter.hasNext()){
-            GetStatementResultResponse resp = iter.next();
-            // parse metadata in first response only
-            if (this.metadata == null) {
-                this.metadata = new RedshiftResultSetMetadata(resp);
-                this.totalResultRows = Math.toIntExact(resp.totalNumRows());
+    /**
+     * Makes the given row current, loading pages up to it if needed.
+     * @param index zero based row number
+     * @return false past the end of the result
+     */
+    private boolean moveTo(int index) throws SQLException {
+        while (index >= this.loadedRows) {
+            if (!fetchPage())
+                return false;
+        }
+        for (Iterator<RedshiftColumnarPage> it = this.pages.descendingIterator(); it.hasNext(); ) {
+            RedshiftColumnarPage page = it.next();
+            if (index >= page.getStart()) {
+                this.currentPage = page;
+                this.pageRow = index - page.getStart();
+                this.lastColumn = -1;
+                return true;
             }
-            rows.addAll(resp.records());
         }
-        this.resultRows = rows;
-        this.rowIndex=0;
+        throw new SQLException(String.format("row %d was already released, with fetch size %d only %d pages are kept", index + 1, this.fetchSize, this.maxPages));
+    }
+
+    private RedshiftColumnarPage.Column getColumn(int columnIndex) throws SQLException {
+        if (this.currentPage == null)
+            throw new SQLException("no current row");
+        if (columnIndex < 1 || columnIndex > this.metadata.getColumnCount())
+            throw new SQLException(String.format("column index %d out of range", columnIndex));
+        this.lastColumn = columnIndex-1;
+        return this.currentPage.getColumn(columnIndex-1);
     }
 
     public RedshiftResultSet(RedshiftStatement stmt, Iterator<GetStatementResultResponse> results) throws SQLException {
+        this(stmt,null,results);
+    }
+
+    public RedshiftResultSet(RedshiftStatement stmt, RedshiftStatementHandle handle, Iterator<GetStatementResultResponse> results) throws SQLException {
         this.stmt = stmt;
+        this.handle = handle;
+        this.fetchSize = stmt == null ? 0 : stmt.getFetchSize();
         this.processResponse(results);
     }
 
+    /**
+     * @return the statement this result belongs to, null for results built by the driver itself
+     */
+    RedshiftStatementHandle getHandle() {
+        return this.handle;
+    }
+
+    /**
+     * @return the background page download of this result, null if prefetching is disabled
+     */
+    RedshiftPagePrefetcher getPrefetcher() {
+        return this.prefetcher;
+    }
+
+    @Override
+    public int getFetchedPages() {
+        return this.prefetcher == null ? 0 : this.prefetcher.getFetchedPages();
+    }
+
+    @Override
+    public int getReadPages() {
+        return this.prefetcher == null ? 0 : this.prefetcher.getReadPages();
+    }
+
+    @Override
+    public int getStalls() {
+        return this.prefetcher == null ? 0 : this.prefetcher.getStalls();
+    }
+
+    @Override
+    public long getStallNanos() {
+        return this.prefetcher == null ? 0 : this.prefetcher.getStallNanos();
+    }
+
     @Override
     public boolean next() throws SQLException {
-        if (this.rowIndex == this.totalResultRows){
+        if (this.rowIndex >= this.totalResultRows || !this.moveTo(this.rowIndex)){
             this.afterLast();
             return false;
         }
-        this.currentRow = this.resultRows.get(this.rowIndex++);
-        this.lastColumn = -1;
+        this.rowIndex++;
         return true;
     }
 
     @Override
     public void close() throws SQLException {
-
+        if (this.results instanceof RedshiftPagePrefetcher)
+            ((RedshiftPagePrefetcher) this.results).close();
+        this.results = null;
+        this.pages.clear();
+        this.currentPage = null;
     }
 
     @Override
     public boolean wasNull() throws SQLException {
-        if (this.currentRow == null){
+        if (this.currentPage == null){
             throw new SQLException("you have to call next at least once");
         }
         if (this.lastColumn == -1){
             throw new SQLException("you have to read at least one column");
         }
-        return this.currentRow.get(this.lastColumn).isNull();
+        return this.currentPage.getColumn(this.lastColumn).isNull(this.pageRow);
     }
 
     @Override
     public String getString(int columnIndex) throws SQLException {
-        return String.valueOf(this.getObject(columnIndex));
+        RedshiftColumnarPage.Column c = this.getColumn(columnIndex);
+        return c.isNull(this.pageRow) ? null : this.decoders[this.lastColumn].getString(c, this.pageRow);
     }
 
+    // primitive getters read straight from the column vectors, SQL NULL reads as 0/false and sets wasNull
+
     @Override
     public boolean getBoolean(int columnIndex) throws SQLException {
-        return this.getObject(columnIndex,Boolean.class);
+        RedshiftColumnarPage.Column c = this.getColumn(columnIndex);
+        return !c.isNull(this.pageRow) && this.decoders[this.lastColumn].getBoolean(c, this.pageRow);
     }
 
     @Override
     public byte getByte(int columnIndex) throws SQLException {
-        return this.getObject(columnIndex,Long.class).byteValue();
+        return (byte) this.getLong(columnIndex);
     }
 
     @Override
     public short getShort(int columnIndex) throws SQLException {
-        return this.getObject(columnIndex,Long.class).shortValue();
+        return (short) this.getLong(columnIndex);
     }
 
     @Override
     public int getInt(int columnIndex) throws SQLException {
-        return this.getObject(columnIndex,Long.class).intValue();
+        return (int) this.getLong(columnIndex);
     }
 
     @Override
     public long getLong(int columnIndex) throws SQLException {
-        return this.getObject(columnIndex,Long.class);
+        RedshiftColumnarPage.Column c = this.getColumn(columnIndex);
+        return c.isNull(this.pageRow) ? 0 : this.decoders[this.lastColumn].getLong(c, this.pageRow);
     }
 
     @Override
     public float getFloat(int columnIndex) throws SQLException {
-        return this.getObject(columnIndex,Float.class);
+        return (float) this.getDouble(columnIndex);
     }
 
     @Override
     public double getDouble(int columnIndex) throws SQLException {
-        return this.getObject(columnIndex,Double.class);
+        RedshiftColumnarPage.Column c = this.getColumn(columnIndex);
+        return c.isNull(this.pageRow) ? 0 : this.decoders[this.lastColumn].getDouble(c, this.pageRow);
     }
 
     @Override
     public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
-        return new BigDecimal(getString(columnIndex));
+        BigDecimal d = getBigDecimal(columnIndex);
+        return d == null ? null : d.setScale(scale, RoundingMode.HALF_UP);
     }
 
     @Override
@@ -180,17 +236,20 @@ class RedshiftResultSet implements ResultSet {
 
     @Override
     public Date getDate(int columnIndex) throws SQLException {
-        return Date.valueOf(LocalDate.parse(getString(columnIndex),DATE_FORMATTER));
+        RedshiftColumnarPage.Column c = this.getColumn(columnIndex);
+        return c.isNull(this.pageRow) ? null : this.decoders[this.lastColumn].getDate(c, this.pageRow);
     }
 
     @Override
     public Time getTime(int columnIndex) throws SQLException {
-        return Time.valueOf(LocalTime.parse(getString(columnIndex),TIME_FORMATTER));
+        RedshiftColumnarPage.Column c = this.getColumn(columnIndex);
+        return c.isNull(this.pageRow) ? null : this.decoders[this.lastColumn].getTime(c, this.pageRow);
     }
 
     @Override
     public Timestamp getTimestamp(int columnIndex) throws SQLException {
-        return Timestamp.valueOf(LocalDateTime.parse(getString(columnIndex),TIMESTAMP_FORMATTER));
+        RedshiftColumnarPage.Column c = this.getColumn(columnIndex);
+        return c.isNull(this.pageRow) ? null : this.decoders[this.lastColumn].getTimestamp(c, this.pageRow);
     }
 
     @Override
@@ -210,7 +269,7 @@ class RedshiftResultSet implements ResultSet {
 
     @Override
     public String getString(String columnLabel) throws SQLException {
-        return getObject(columnLabel,String.class);
+        return getString(findColumn(columnLabel));
     }
 
     @Override
@@ -250,7 +309,7 @@ class RedshiftResultSet implements ResultSet {
 
     @Override
     public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
-        return getBigDecimal(findColumn(columnLabel));
+        return getBigDecimal(findColumn(columnLabel), scale);
     }
 
     @Override
@@ -310,12 +369,8 @@ class RedshiftResultSet implements ResultSet {
 
     @Override
     public Object getObject(int columnIndex) throws SQLException {
-        return fieldToObject(getField(columnIndex));
-    }
-
-    private Field getField(int columnIndex) throws SQLException {
-        this.lastColumn = columnIndex-1;
-        return this.currentRow.get(columnIndex-1);
+        RedshiftColumnarPage.Column c = this.getColumn(columnIndex);
+        return this.decoders[this.lastColumn].getObject(c, this.pageRow);
     }
 
     @Override
@@ -325,12 +380,37 @@ class RedshiftResultSet implements ResultSet {
 
     @Override
     public int findColumn(String columnLabel) throws SQLException {
+        // row loops read the same few labels over and over, usually the same string instance
+        if (columnLabel == this.lastLabel)
+            return this.lastLabelIndex;
+        if (this.columnIndex == null)
+            this.columnIndex = buildColumnIndex();
+        Integer i = this.columnIndex.get(columnLabel);
+        if (i == null)
+            i = this.columnIndex.get(columnLabel.toLowerCase(Locale.ROOT));
+        if (i == null)
+            throw new SQLException(String.format("column not %s found",columnLabel));
+        this.lastLabel = columnLabel;
+        this.lastLabelIndex = i;
+        return i;
+    }
+
+    /**
+     * Names are put lower cased and as they are, so exact matches skip the lower casing.
+     * Like the jdbc spec asks, the first column matching case insensitively wins for both.
+     */
+    private Map<String, Integer> buildColumnIndex() throws SQLException {
+        if (this.metadata == null)
+            throw new SQLException("result has no columns");
         int n = this.metadata.getColumnCount();
-        for (int i=1;i<=n;i++){
-            if (columnLabel.equalsIgnoreCase(this.metadata.getColumnName(i)))
-                return i;
+        Map<String, Integer> index = new HashMap<>(n * 4);
+        for (int i = 1; i <= n; i++)
+            index.putIfAbsent(this.metadata.getColumnName(i).toLowerCase(Locale.ROOT), i);
+        for (int i = 1; i <= n; i++) {
+            String name = this.metadata.getColumnName(i);
+            index.putIfAbsent(name, index.get(name.toLowerCase(Locale.ROOT)));
         }
-        throw new SQLException(String.format("column not %s found",columnLabel));
+        return index;
     }
 
     @Override
@@ -345,17 +425,18 @@ class RedshiftResultSet implements ResultSet {
 
     @Override
     public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
-        throw new SQLFeatureNotSupportedException("no supported");
+        RedshiftColumnarPage.Column c = this.getColumn(columnIndex);
+        return c.isNull(this.pageRow) ? null : this.decoders[this.lastColumn].getBigDecimal(c, this.pageRow);
     }
 
     @Override
     public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
-        throw new SQLFeatureNotSupportedException("no supported");
+        return getBigDecimal(findColumn(columnLabel));
     }
 
     @Override
     public boolean isBeforeFirst() throws SQLException {
-        return this.currentRow == null;
+        return this.currentPage == null && this.rowIndex == 0;
     }
 
     @Override
@@ -376,13 +457,13 @@ class RedshiftResultSet implements ResultSet {
     @Override
     public void beforeFirst() throws SQLException {
         this.rowIndex = 0;
-        this.currentRow = null;
+        this.currentPage = null;
     }
 
     @Override
     public void afterLast() throws SQLException {
         this.rowIndex = this.totalResultRows + 1;
-        this.currentRow = null;
+        this.currentPage = null;
     }
 
     @Override
@@ -409,8 +490,14 @@ class RedshiftResultSet implements ResultSet {
         if (row <= 0){
             throw new SQLException("huh row");
         }
-        this.currentRow = this.resultRows.get(row-1);
-        this.lastColumn = -1;
+        if (row > this.totalResultRows){
+            this.afterLast();
+            return false;
+        }
+        if (!this.moveTo(row-1)){
+            this.afterLast();
+            return false;
+        }
         this.rowIndex = row;
         return true;
     }
@@ -438,12 +525,22 @@ class RedshiftResultSet implements ResultSet {
 
     @Override
     public void setFetchSize(int rows) throws SQLException {
-
+        if (rows < 0)
+            throw new SQLException("fetch size must be >= 0");
+        this.fetchSize = rows;
+        // the data api decides the page size, so the fetch size is turned into a number of pages to keep
+        RedshiftColumnarPage first = this.pages.peekFirst();
+        if (rows == 0 || first == null || first.size() == 0)
+            this.maxPages = rows == 0 ? Integer.MAX_VALUE : 1;
+        else
+            this.maxPages = Math.max(1, (rows + first.size() - 1) / first.size());
+        while (this.pages.size() > this.maxPages)
+            this.pages.removeFirst();
     }
 
     @Override
     public int getFetchSize() throws SQLException {
-        return 0;
+        return this.fetchSize;
     }
 
     @Override
@@ -1074,35 +1171,47 @@ class RedshiftResultSet implements ResultSet {
 
     @Override
     public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
-        Field field  = getField(columnIndex);
-        if (field.isNull()){
+        RedshiftColumnarPage.Column c = this.getColumn(columnIndex);
+        RedshiftColumnDecoder d = this.decoders[this.lastColumn];
+        int row = this.pageRow;
+        if (c.isNull(row)){
             return null;
         }
         if (type.equals(Long.class)) {
-            return type.cast(field.longValue());
+            return type.cast(d.getLong(c, row));
         } else if (type.equals(Integer.class)) {
-            return type.cast(field.longValue().intValue());
+            return type.cast((int) d.getLong(c, row));
         } else if (type.equals(Short.class)) {
-            return type.cast(field.longValue().shortValue());
+            return type.cast((short) d.getLong(c, row));
         } else if (type.equals(Byte.class)) {
-            return type.cast(field.longValue().byteValue());
+            return type.cast((byte) d.getLong(c, row));
         } else if (type.equals(String.class)) {
-            return type.cast(field.stringValue());
+            return type.cast(d.getString(c, row));
         } else if (type.equals(Double.class)) {
-            return type.cast(field.doubleValue());
+            return type.cast(d.getDouble(c, row));
         } else if (type.equals(Float.class)) {
-            return type.cast(field.doubleValue().floatValue());
+            return type.cast((float) d.getDouble(c, row));
         } else if ( type.equals(BigDecimal.class)){
-            return type.cast(new BigDecimal(field.stringValue()));
+            return type.cast(d.getBigDecimal(c, row));
         } else if ( type.equals(Boolean.class)){
-            return type.cast(field.booleanValue());
+            return type.cast(d.getBoolean(c, row));
+        } else if ( type.equals(Timestamp.class)){
+            return type.cast(d.getTimestamp(c, row));
+        } else if ( type.equals(Date.class)){
+            return type.cast(d.getDate(c, row));
+        } else if ( type.equals(Time.class)){
+            return type.cast(d.getTime(c, row));
+        } else if ( type.equals(LocalDateTime.class)){
+            return type.cast(d.getLocalDateTime(c, row));
+        } else if ( type.equals(OffsetDateTime.class)){
+            return type.cast(d.getOffsetDateTime(c, row));
         }
-        return type.cast(this.getObject(columnIndex));
+        return type.cast(d.getObject(c, row));
     }
 
     @Override
     public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
-        return type.cast(this.getObject(columnLabel));
+        return this.getObject(this.findColumn(columnLabel), type);
     }
 
     @Override
@@ -3,22 +3,39 @@ package dev.chrisdd.redshiftdata;
 import software.amazon.awssdk.services.redshiftdata.model.ColumnMetadata;
 import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
 
-import java.math.BigDecimal;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Types;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.List;
-import java.sql.Timestamp;
+import java.util.Locale;
 
 class RedshiftResultSetMetadata implements ResultSetMetaData {
 
     private final List<ColumnMetadata> metadata;
+    // resolved once from the column metadata, the getters index into these per row
+    private final String[] typeNames;
+    private final int[] types;
+    private final RedshiftColumnDecoder[] decoders;
 
     public RedshiftResultSetMetadata(GetStatementResultResponse resp){
         this.metadata = resp.columnMetadata();
+        int n = this.metadata.size();
+        this.typeNames = new String[n];
+        this.types = new int[n];
+        this.decoders = new RedshiftColumnDecoder[n];
+        for (int i = 0; i < n; i++) {
+            String typeName = this.metadata.get(i).typeName();
+            this.typeNames[i] = typeName == null ? "" : typeName.toLowerCase(Locale.ROOT);
+            this.types[i] = mapRedshiftType(this.typeNames[i]);
+            this.decoders[i] = RedshiftColumnDecoder.of(this.metadata.get(i), this.types[i]);
+        }
+    }
+
+    /**
+     * @return one decoder per column, zero based
+     */
+    RedshiftColumnDecoder[] getDecoders() {
+        return this.decoders;
     }
 
     private ColumnMetadata getColumn(int idx) throws SQLException {
@@ -102,7 +119,8 @@ class RedshiftResultSetMetadata implements ResultSetMetaData {
 
     @Override
     public int getColumnType(int column) throws SQLException {
-        return mapRedshiftType(this.getColumnTypeName(column));
+        this.getColumn(column);
+        return this.types[column-1];
     }
 
     private String stringOrEmpty(String s){
@@ -118,18 +136,28 @@ class RedshiftResultSetMetadata implements ResultSetMetaData {
     public static int mapRedshiftType(String type) {
         switch(type){
             case "bigint":
+            case "int8":
             case "oid":
                 return Types.BIGINT;
             case "bool":
             case "boolean": return Types.BOOLEAN;
-            case "char": return Types.CHAR;
+            case "char":
+            case "bpchar": return Types.CHAR;
             case "date": return Types.DATE;
-            case "decimal": return Types.NUMERIC;
-            case "double": return Types.DOUBLE;
+            case "decimal":
+            case "numeric": return Types.NUMERIC;
+            case "double":
+            case "float8":
+            case "float": return Types.DOUBLE;
             case "geometry": return Types.LONGVARBINARY;
-            case "integer": return Types.INTEGER;
+            case "smallint":
+            case "int2": return Types.SMALLINT;
+            case "integer":
+            case "int4":
+            case "int": return Types.INTEGER;
             case "super": return Types.LONGNVARCHAR;
-            case "real": return Types.REAL;
+            case "real":
+            case "float4": return Types.REAL;
             case "time": return Types.TIME;
             case "timetz": return Types.TIME_WITH_TIMEZONE;
             case "timestamp": return Types.TIMESTAMP;
@@ -140,7 +168,8 @@ class RedshiftResultSetMetadata implements ResultSetMetaData {
 
     @Override
     public String getColumnTypeName(int column) throws SQLException {
-        return this.getColumn(column).typeName().toLowerCase();
+        this.getColumn(column);
+        return this.typeNames[column-1];
     }
 
     @Override
@@ -160,26 +189,8 @@ class RedshiftResultSetMetadata implements ResultSetMetaData {
 
     @Override
     public String getColumnClassName(int column) throws SQLException {
-        String type = this.getColumnTypeName(column);
-        switch(type){
-            case "bigint":
-            case "oid":
-                return Long.class.getName();
-            case "bool":
-            case "boolean": return Boolean.class.getName();
-            case "char": return Character.class.getName();
-            case "real":
-            case "decimal": return BigDecimal.class.getName();
-            case "double": return Double.class.getName();
-            case "integer": return Integer.class.getName();
-            case "date": return LocalDate.class.getName();
-            case "time":
-            case "timetz": return LocalTime.class.getName();
-            case "timestamp":
-            case "timestamptz": return LocalDateTime.class.getName();
-            default:
-                return String.class.getName();
-        }
+        this.getColumn(column);
+        return RedshiftColumnDecoder.className(this.types[column-1]);
     }
 
     @Override
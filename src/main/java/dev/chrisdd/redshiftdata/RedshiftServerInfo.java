@@ -0,0 +1,81 @@
+package dev.chrisdd.redshiftdata;
+
+import dev.chrisdd.redshiftdata.config.RedshiftConfiguration;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * User and version of the server behind a connection, as {@link RedshiftDatabaseMetadata} reports them.
+ * Both come from one statement, run once per target and user and kept for the life of the driver,
+ * connections with {@code cacheServerInfo=false} run it on every lookup.
+ */
+final class RedshiftServerInfo {
+    static final String SQL = "select current_user(), version()";
+
+    private static final Pattern REDSHIFT_VERSION = Pattern.compile("Redshift (\\d+)\\.(\\d+)");
+    // a few hundred bytes per target and user, the bound only matters for drivers serving many users
+    private static final RedshiftCache<List<Object>, RedshiftServerInfo> CACHE = new RedshiftCache<>(1L << 20, i -> 256);
+
+    private final String user;
+    private final String version;
+    private final int majorVersion;
+    private final int minorVersion;
+
+    RedshiftServerInfo(String user, String version) {
+        this.user = user;
+        this.version = version;
+        Matcher m = version == null ? null : REDSHIFT_VERSION.matcher(version);
+        if (m != null && m.find()) {
+            this.majorVersion = Integer.parseInt(m.group(1));
+            this.minorVersion = Integer.parseInt(m.group(2));
+        } else {
+            this.majorVersion = 0;
+            this.minorVersion = 0;
+        }
+    }
+
+    static RedshiftServerInfo of(RedshiftConnection conn) throws SQLException {
+        RedshiftConfiguration config = conn.getConfig();
+        if (!config.isCacheServerInfo())
+            return load(conn);
+        return CACHE.get(config.getTargetKey(), Long.MAX_VALUE, () -> load(conn));
+    }
+
+    private static RedshiftServerInfo load(RedshiftConnection conn) throws SQLException {
+        try (ResultSet rs = conn.createStatement().executeQuery(SQL)) {
+            if (!rs.next())
+                throw new SQLException("no result from server info query");
+            return new RedshiftServerInfo(rs.getString(1), rs.getString(2));
+        }
+    }
+
+    static void clear() {
+        CACHE.clear();
+    }
+
+    String getUser() {
+        return user;
+    }
+
+    /**
+     * @return the text of {@code version()}
+     */
+    String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the major part of the Redshift release in the version text, 0 if there is none
+     */
+    int getMajorVersion() {
+        return majorVersion;
+    }
+
+    int getMinorVersion() {
+        return minorVersion;
+    }
+}
@@ -0,0 +1,292 @@
+package dev.chrisdd.redshiftdata;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Placeholders and layout of a sql string, found with one pass that skips quoted text and comments.
+ * Data API parameters are written {@code :name}, a {@code ::} cast is not one. Prepared statements may use
+ * jdbc {@code ?} placeholders instead, see {@link #ofPrepared}.
+ */
+final class RedshiftSqlShape {
+    private final String sql;
+    private final List<String> placeholders = new ArrayList<>();
+    private final List<Integer> placeholderStarts = new ArrayList<>();
+    private final List<Integer> questionMarks = new ArrayList<>();
+    private final List<String> parameterNames;
+    private String keyword = "";
+    private int valuesStart = -1;
+    private int valuesEnd = -1;
+
+    private RedshiftSqlShape(String sql) {
+        this.sql = sql;
+        scan();
+        this.parameterNames = Collections.unmodifiableList(parameterNames(this.placeholders));
+    }
+
+    static RedshiftSqlShape of(String sql) {
+        return new RedshiftSqlShape(sql);
+    }
+
+    /**
+     * Shape of a prepared statement, whose jdbc {@code ?} placeholders are rewritten to the positional
+     * {@code :1..:n} the Data API understands. {@link #getSql()} returns the rewritten sql.
+     * @throws SQLException if the sql mixes {@code ?} and {@code :name} placeholders or skips a numbered one
+     */
+    static RedshiftSqlShape ofPrepared(String sql) throws SQLException {
+        RedshiftSqlShape shape = of(sql);
+        if (!shape.questionMarks.isEmpty()) {
+            if (!shape.placeholders.isEmpty())
+                throw new SQLException(String.format("? and :name parameters can not be mixed in %s", sql));
+            StringBuilder b = new StringBuilder(sql.length() + 2 * shape.questionMarks.size());
+            int from = 0;
+            for (int k = 0; k < shape.questionMarks.size(); k++) {
+                int i = shape.questionMarks.get(k);
+                b.append(sql, from, i).append(':').append(k + 1);
+                // keep "?and" from turning into the name "1and"
+                if (i + 1 < sql.length() && isNameChar(sql.charAt(i + 1)))
+                    b.append(' ');
+                from = i + 1;
+            }
+            b.append(sql, from, sql.length());
+            shape = of(b.toString());
+        }
+        Set<String> used = new HashSet<>(shape.placeholders);
+        for (String name : shape.parameterNames) {
+            if (!used.contains(name))
+                throw new SQLException(String.format("parameter :%s is missing in %s", name, sql));
+        }
+        return shape;
+    }
+
+    /**
+     * Numbered names take the index of their number, {@code :2} is parameter 2 wherever it appears, the other
+     * names fill the free indexes in order of first use. An index no name takes is named by its number.
+     */
+    private static List<String> parameterNames(List<String> placeholders) {
+        Set<String> distinct = new LinkedHashSet<>(placeholders);
+        int count = distinct.size();
+        for (String name : distinct)
+            count = Math.max(count, number(name));
+        String[] names = new String[count];
+        for (String name : distinct) {
+            if (number(name) > 0)
+                names[number(name) - 1] = name;
+        }
+        int next = 0;
+        for (String name : distinct) {
+            if (number(name) > 0)
+                continue;
+            while (names[next] != null)
+                next++;
+            names[next] = name;
+        }
+        for (int i = 0; i < count; i++) {
+            if (names[i] == null)
+                names[i] = String.valueOf(i + 1);
+        }
+        return Arrays.asList(names);
+    }
+
+    /**
+     * @return the number a name like {@code 2} stands for, 0 for other names and numbers past the parameter limit
+     */
+    private static int number(String name) {
+        if (name.isEmpty() || name.length() > 5 || name.charAt(0) == '0')
+            return 0;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) < '0' || name.charAt(i) > '9')
+                return 0;
+        }
+        int n = Integer.parseInt(name);
+        return n <= RedshiftInsertBatch.MAX_PARAMETERS ? n : 0;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return first word of the statement in lower case, empty if there is none
+     */
+    public String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * @return true if the statement returns rows
+     */
+    public boolean isQuery() {
+        switch (keyword) {
+            case "select":
+            case "with":
+            case "values":
+            case "show":
+            case "explain":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return distinct parameter names by jdbc parameter index, see {@link #parameterNames}
+     */
+    public List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * @return every placeholder occurrence in order, a name used twice shows up twice
+     */
+    public List<String> getPlaceholders() {
+        return Collections.unmodifiableList(placeholders);
+    }
+
+    /**
+     * @return offset of the {@code :} of the i-th placeholder
+     */
+    public int getPlaceholderStart(int i) {
+        return placeholderStarts.get(i);
+    }
+
+    public int getPlaceholderEnd(int i) {
+        return placeholderStarts.get(i) + 1 + placeholders.get(i).length();
+    }
+
+    /**
+     * An {@code INSERT ... VALUES (...)} whose single row is the last thing in the statement and holds
+     * every placeholder, so more rows can be appended after it.
+     */
+    public boolean isSingleRowInsert() {
+        return valuesStart >= 0;
+    }
+
+    /**
+     * @return offset of the opening parenthesis of the values row, -1 if not a single row insert
+     */
+    public int getValuesStart() {
+        return valuesStart;
+    }
+
+    /**
+     * @return offset after the closing parenthesis of the values row, -1 if not a single row insert
+     */
+    public int getValuesEnd() {
+        return valuesEnd;
+    }
+
+    private void scan() {
+        String s = this.sql;
+        int n = s.length();
+        int depth = 0;
+        boolean insert = false;
+        int values = -1;
+        int rowStart = -1;
+        int rowEnd = -1;
+        boolean trailing = false;
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(s, i, c);
+                trailing |= rowEnd >= 0;
+                continue;
+            }
+            if (c == '-' && i + 1 < n && s.charAt(i + 1) == '-') {
+                while (i < n && s.charAt(i) != '\n')
+                    i++;
+                continue;
+            }
+            if (c == '/' && i + 1 < n && s.charAt(i + 1) == '*') {
+                int end = s.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+                continue;
+            }
+            if (c == ':') {
+                if (i + 1 < n && s.charAt(i + 1) == ':') {
+                    i += 2;
+                    continue;
+                }
+                int end = i + 1;
+                while (end < n && isNameChar(s.charAt(end)))
+                    end++;
+                if (end > i + 1) {
+                    this.placeholders.add(s.substring(i + 1, end));
+                    this.placeholderStarts.add(i);
+                    i = end;
+                    continue;
+                }
+            }
+            if (c == '?')
+                this.questionMarks.add(i);
+            if (Character.isLetter(c) || c == '_') {
+                int end = i + 1;
+                while (end < n && isNameChar(s.charAt(end)))
+                    end++;
+                if (this.keyword.isEmpty()) {
+                    this.keyword = s.substring(i, end).toLowerCase(Locale.ROOT);
+                    insert = this.keyword.equals("insert");
+                } else if (insert && depth == 0 && values < 0 && end - i == 6 && s.regionMatches(true, i, "values", 0, 6)) {
+                    values = i;
+                } else if (rowEnd >= 0) {
+                    trailing = true;
+                }
+                i = end;
+                continue;
+            }
+            if (c == '(') {
+                if (values >= 0 && depth == 0) {
+                    if (rowStart >= 0)
+                        trailing = true;
+                    rowStart = i;
+                }
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0 && rowStart >= 0 && rowEnd < 0)
+                    rowEnd = i + 1;
+            } else if (!Character.isWhitespace(c) && c != ';' && rowEnd >= 0) {
+                trailing = true;
+            } else if (c == ';' && rowEnd < 0) {
+                trailing = true;
+            }
+            i++;
+        }
+        if (rowEnd < 0 || trailing)
+            return;
+        for (int start : this.placeholderStarts) {
+            if (start < rowStart || start >= rowEnd)
+                return;
+        }
+        this.valuesStart = rowStart;
+        this.valuesEnd = rowEnd;
+    }
+
+    private static int skipQuoted(String s, int i, char quote) {
+        int n = s.length();
+        i++;
+        while (i < n) {
+            if (s.charAt(i) == quote) {
+                if (i + 1 < n && s.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return n;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
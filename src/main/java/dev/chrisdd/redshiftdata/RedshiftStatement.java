@@ -1,51 +1,103 @@
 package dev.chrisdd.redshiftdata;
 
+import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
 import software.amazon.awssdk.services.redshiftdata.model.SqlParameter;
 
 import java.sql.*;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 class RedshiftStatement implements Statement {
 
 
     protected final RedshiftConnection conn;
-    private Optional<RedshiftResultSet> resultSet;
+    protected RedshiftStatementHandle handle;
+    protected RedshiftResultSet resultSet;
+    private int fetchSize;
+    private final List<String> batch = new ArrayList<>();
 
     public RedshiftStatement(RedshiftConnection conn){
         this.conn = conn;
     }
 
-    @Override
-    public ResultSet executeQuery(String sql) throws SQLException {
+    protected boolean executeHandle(String sql, SqlParameter[] params) throws SQLException {
+        return this.executeHandle(sql, RedshiftSqlShape.of(sql).getKeyword(), params);
+    }
+
+    /**
+     * Runs the statement and keeps its handle, plus a result set if it returned one.
+     * Queries are answered from the result cache or a stored earlier result when the connection enables them.
+     * @param keyword first word of the sql, prepared statements pass the one of their scanned shape
+     * @return true if there is a result set
+     */
+    protected boolean executeHandle(String sql, String keyword, SqlParameter[] params) throws SQLException {
+        if (this.resultSet != null)
+            this.resultSet.close();
+        this.resultSet = null;
+        Iterator<GetStatementResultResponse> pages = null;
+        if (RedshiftResultCache.isCacheable(this.conn.getConfig(),keyword)) {
+            RedshiftResultCache.CachedResult cached = RedshiftResultCache.getInstance().execute(this.conn,sql,params);
+            this.handle = cached.getHandle();
+            pages = cached.pages();
+        } else if (RedshiftStatementReuse.isReusable(this.conn.getConfig(),keyword)) {
+            if (this.readStored(sql,params))
+                return true;
+            this.handle = RedshiftStatementReuse.getInstance().execute(this.conn,sql,params);
+        } else {
+            try {
+                this.handle = this.conn.execute(sql,params);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            if (RedshiftCatalogCache.isDdl(keyword))
+                this.conn.invalidateCatalogCache();
+        }
+        if (!this.handle.hasResultSet())
+            return false;
+        if (pages == null)
+            pages = this.conn.getStatementResult(this.handle);
+        this.resultSet = new RedshiftResultSet(this,this.handle,pages);
+        return true;
+    }
+
+    /**
+     * Opens the stored result of an earlier run of the query.
+     * @return false if there is none or the service no longer has it
+     */
+    private boolean readStored(String sql, SqlParameter[] params) throws SQLException {
+        RedshiftStatementReuse reuse = RedshiftStatementReuse.getInstance();
+        RedshiftStatementHandle stored = reuse.lookup(this.conn,sql,params);
+        if (stored == null)
+            return false;
         try {
-            this.resultSet= this.conn.executeQuery(sql,new SqlParameter[0]).map(r -> {
-                // sigh java
-                try {
-                    return new RedshiftResultSet(this, r);
-                } catch (SQLException e) {
-                    throw new RuntimeException(e);
-                }
-            });
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            this.resultSet = new RedshiftResultSet(this,stored,this.conn.getStatementResult(stored));
+        } catch (RuntimeException e) {
+            reuse.invalidate(this.conn,sql,params);
+            return false;
         }
-        if (!this.resultSet.isPresent()) {
+        this.handle = stored;
+        return true;
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        if (!this.executeHandle(sql,new SqlParameter[0])) {
             throw new SQLException("no result set from query");
         }
-        return this.resultSet.get();
+        return this.resultSet;
     }
 
     @Override
     public int executeUpdate(String sql) throws SQLException {
-        try {
-            return (int)this.conn.executeSql(sql,new SqlParameter[0]);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        this.executeHandle(sql,new SqlParameter[0]);
+        return (int)Math.max(this.handle.getResultRows(),0);
     }
 
     @Override
     public void close() throws SQLException {
+        if (this.resultSet != null)
+            this.resultSet.close();
     }
 
     @Override
@@ -105,18 +157,19 @@ class RedshiftStatement implements Statement {
 
     @Override
     public boolean execute(String sql) throws SQLException {
-        this.executeQuery(sql);
-        return this.resultSet.isPresent();
+        return this.executeHandle(sql,new SqlParameter[0]);
     }
 
     @Override
     public ResultSet getResultSet() throws SQLException {
-        return this.resultSet.get();
+        return this.resultSet;
     }
 
     @Override
     public int getUpdateCount() throws SQLException {
-        return 0;
+        if (this.handle == null || this.resultSet != null)
+            return -1;
+        return (int)this.handle.getResultRows();
     }
 
     @Override
@@ -136,12 +189,18 @@ class RedshiftStatement implements Statement {
 
     @Override
     public void setFetchSize(int rows) throws SQLException {
-
+        if (rows < 0)
+            throw new SQLException("fetch size must be >= 0");
+        this.fetchSize = rows;
     }
 
+    /**
+     * 0 keeps every page of a result in memory, otherwise results keep only as many pages as needed
+     * to hold this many rows and become forward only.
+     */
     @Override
-    public int getFetchSize() throws SQLException {
-        return 0;
+    public int getFetchSize() {
+        return this.fetchSize;
     }
 
     @Override
@@ -156,17 +215,34 @@ class RedshiftStatement implements Statement {
 
     @Override
     public void addBatch(String sql) throws SQLException {
-
+        this.batch.add(sql);
     }
 
     @Override
     public void clearBatch() throws SQLException {
-
+        this.batch.clear();
     }
 
     @Override
     public int[] executeBatch() throws SQLException {
-        return new int[0];
+        long[] counts = this.executeLargeBatch();
+        int[] result = new int[counts.length];
+        for (int i = 0; i < counts.length; i++)
+            result[i] = (int) Math.min(counts[i], Integer.MAX_VALUE);
+        return result;
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        if (this.batch.isEmpty())
+            return new long[0];
+        List<String> queries = new ArrayList<>(this.batch);
+        this.batch.clear();
+        try {
+            return this.conn.executeBatch(queries);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
@@ -0,0 +1,86 @@
+package dev.chrisdd.redshiftdata;
+
+import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementResponse;
+
+/**
+ * A submitted Data API statement. Once the poller sees it finish, the terminal describe response is
+ * attached here so nothing downstream has to describe the statement again.
+ */
+class RedshiftStatementHandle {
+    private final String id;
+    private final String sql;
+    private final long submittedAt;
+    private DescribeStatementResponse description;
+    private long finishedAt;
+
+    RedshiftStatementHandle(String id, String sql) {
+        this.id = id;
+        this.sql = sql;
+        this.submittedAt = System.currentTimeMillis();
+    }
+
+    RedshiftStatementHandle finish(DescribeStatementResponse description) {
+        this.description = description;
+        this.finishedAt = System.currentTimeMillis();
+        return this;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public boolean isFinished() {
+        return this.description != null;
+    }
+
+    public DescribeStatementResponse getDescription() {
+        return description;
+    }
+
+    public boolean hasResultSet() {
+        return isFinished() && Boolean.TRUE.equals(this.description.hasResultSet());
+    }
+
+    /**
+     * @return rows returned or affected, -1 if unknown
+     */
+    public long getResultRows() {
+        if (!isFinished() || this.description.resultRows() == null)
+            return -1;
+        return this.description.resultRows();
+    }
+
+    /**
+     * @return size of the result in bytes, -1 if unknown
+     */
+    public long getResultSize() {
+        if (!isFinished() || this.description.resultSize() == null)
+            return -1;
+        return this.description.resultSize();
+    }
+
+    public Long getRedshiftQueryId() {
+        return isFinished() ? this.description.redshiftQueryId() : null;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    /**
+     * @return milliseconds between submitting the statement and seeing it finish, -1 while running
+     */
+    public long getElapsed() {
+        return isFinished() ? this.finishedAt - this.submittedAt : -1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RedshiftStatementHandle{id=%s, queryId=%s, rows=%d, elapsed=%d}",
+                this.id, getRedshiftQueryId(), getResultRows(), getElapsed());
+    }
+}
@@ -0,0 +1,372 @@
+package dev.chrisdd.redshiftdata;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.redshiftdata.RedshiftDataClient;
+import software.amazon.awssdk.services.redshiftdata.model.*;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Driver-wide poller for in-flight Data API statements.
+ * Every submitted statement id is tracked here and polled from a small shared scheduler,
+ * so waiting on a statement never pins the calling thread.
+ */
+class RedshiftStatementPoller {
+    static final String POLLER_THREADS_PROPERTY = "redshiftdata.pollerThreads";
+    static final int MIN_LIST_INTERVAL = 50;
+    static final int MAX_LIST_INTERVAL = 1000;
+    static final int MAX_LIST_PAGES = 5;
+    static final long ERROR_BACKOFF = 100;
+    static final long MAX_ERROR_BACKOFF = 10_000;
+    /**
+     * Listings a due statement may be missing from before it is described on its own, for statements older
+     * than the {@link #MAX_LIST_PAGES} newest ones.
+     */
+    static final int MAX_MISSED_SWEEPS = 3;
+    /**
+     * Statement name given to every statement submitted in list mode by this driver instance,
+     * ListStatements matches it as a prefix so one call covers all of them.
+     */
+    static final String STATEMENT_NAME = "redshiftdata-jdbc-" + UUID.randomUUID();
+
+    private static volatile RedshiftStatementPoller instance;
+
+    private final ScheduledExecutorService scheduler;
+    // submits and result downloads of async statements, kept off the scheduler so they never delay a poll
+    private final ExecutorService blocking;
+    private final Map<String, PendingStatement> inFlight = new ConcurrentHashMap<>();
+    private final Map<RedshiftDataClient, ListSweep> sweeps = new ConcurrentHashMap<>();
+    private final Map<String, PollStrategy> strategies = new ConcurrentHashMap<>();
+
+    static RedshiftStatementPoller getInstance() {
+        if (instance == null) {
+            synchronized (RedshiftStatementPoller.class) {
+                if (instance == null)
+                    instance = new RedshiftStatementPoller(Integer.getInteger(POLLER_THREADS_PROPERTY, 4));
+            }
+        }
+        return instance;
+    }
+
+    private RedshiftStatementPoller(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(threads, r -> {
+            Thread t = new Thread(r, "redshiftdata-poller-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger blockingCounter = new AtomicInteger();
+        this.blocking = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "redshiftdata-async-" + blockingCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @return executor for the blocking Data API calls of async statements, separate from the polling threads
+     */
+    Executor getBlockingExecutor() {
+        return this.blocking;
+    }
+
+    int getInFlightCount() {
+        return this.inFlight.size();
+    }
+
+    /**
+     * Resolves a poll strategy by name, {@code backoff}, {@code adaptive} or a class name.
+     * Instances are shared driver-wide so learning strategies see every connection's statements.
+     */
+    PollStrategy getStrategy(String name) throws SQLException {
+        PollStrategy strategy = this.strategies.get(name);
+        if (strategy != null)
+            return strategy;
+        switch (name) {
+            case "backoff":
+                strategy = new BackoffPollStrategy();
+                break;
+            case "adaptive":
+                strategy = new AdaptivePollStrategy();
+                break;
+            default:
+                try {
+                    strategy = (PollStrategy) Class.forName(name).getConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new SQLException(String.format("invalid poll strategy %s", name), e);
+                }
+        }
+        PollStrategy existing = this.strategies.putIfAbsent(name, strategy);
+        return existing == null ? strategy : existing;
+    }
+
+    /**
+     * Starts tracking a statement id. The returned future completes with the terminal
+     * describe response once the statement is FINISHED, or exceptionally with a {@link SQLException}
+     * if it failed, was aborted or ran past the timeout. Cancelling the future cancels the statement.
+     */
+    CompletableFuture<DescribeStatementResponse> submit(RedshiftDataClient client, String id, String sql, PollStrategy strategy, int timeout) {
+        PendingStatement p = track(client, id, sql, strategy, timeout);
+        schedule(p);
+        return p.future;
+    }
+
+    /**
+     * Same as {@link #submit}, but the statement is polled together with every other statement of the
+     * same client through a single ListStatements call. It must have been executed with {@link #STATEMENT_NAME}.
+     * DescribeStatement is only called once the listing reports the statement as done.
+     */
+    CompletableFuture<DescribeStatementResponse> submitListed(RedshiftDataClient client, String id, String sql, PollStrategy strategy, int timeout) {
+        PendingStatement p = track(client, id, sql, strategy, timeout);
+        p.advance();
+        ListSweep sweep = this.sweeps.computeIfAbsent(client, ListSweep::new);
+        sweep.pending.put(id, p);
+        p.future.whenComplete((r, e) -> sweep.pending.remove(id));
+        if (sweep.scheduled.compareAndSet(false, true))
+            scheduleSweep(sweep);
+        return p.future;
+    }
+
+    /**
+     * The client stays registered while the statement is pending, its polls and sweeps keep using it
+     * even if the connection is closed meanwhile.
+     */
+    private PendingStatement track(RedshiftDataClient client, String id, String sql, PollStrategy strategy, int timeout) {
+        PendingStatement p = new PendingStatement(client, id, SqlFingerprint.of(sql), strategy, timeout);
+        boolean retained = RedshiftClientRegistry.getInstance().retain(client);
+        this.inFlight.put(id, p);
+        p.future.whenComplete((r, e) -> {
+            this.inFlight.remove(id);
+            if (r != null)
+                strategy.finished(p.fingerprint, r);
+            else if (e instanceof CancellationException)
+                cancel(client, id);
+            if (retained)
+                RedshiftClientRegistry.getInstance().release(client);
+        });
+        return p;
+    }
+
+    private void schedule(PendingStatement p) {
+        long delay = p.advance();
+        try {
+            this.scheduler.schedule(() -> poll(p), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            p.future.completeExceptionally(new SQLException("statement poller is not running", e));
+        }
+    }
+
+    private void poll(PendingStatement p) {
+        if (!p.future.isDone() && !describe(p) && !expire(p))
+            schedule(p);
+    }
+
+    /**
+     * Describes the statement and completes its future if it reached a terminal state.
+     * A throttled or otherwise retryable describe leaves the statement pending, it keeps running on the server.
+     * @return false if the statement is still running
+     */
+    private boolean describe(PendingStatement p) {
+        DescribeStatementResponse resp;
+        try {
+            resp = p.client.describeStatement(DescribeStatementRequest.builder().id(p.id).build());
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                p.errors++;
+                return false;
+            }
+            p.future.completeExceptionally(new SQLException(String.format("failed to describe statement %s", p.id), e));
+            return true;
+        }
+        p.errors = 0;
+        switch (resp.status()) {
+            case PICKED:
+            case SUBMITTED:
+            case STARTED:
+                return false;
+            case FINISHED:
+                p.future.complete(resp);
+                return true;
+            case FAILED:
+            case ABORTED:
+                p.future.completeExceptionally(new SQLException(String.format("query failed/aborted %s %s", resp.redshiftQueryId(), resp.error())));
+                return true;
+            default:
+                p.future.completeExceptionally(new SQLException(String.format("unknown status %s", resp.statusAsString())));
+                return true;
+        }
+    }
+
+    private boolean expire(PendingStatement p) {
+        long elapsed = System.currentTimeMillis() - p.submittedAt;
+        if (elapsed <= p.timeout)
+            return false;
+        cancel(p.client, p.id);
+        p.future.completeExceptionally(new SQLException(String.format("query timed out after %d miliseconds", elapsed)));
+        return true;
+    }
+
+    private void scheduleSweep(ListSweep sweep) {
+        try {
+            long delay = MAX_LIST_INTERVAL;
+            long now = System.currentTimeMillis();
+            for (PendingStatement p : sweep.pending.values())
+                delay = Math.min(delay, p.nextPollAt - now);
+            delay = Math.max(delay, MIN_LIST_INTERVAL);
+            if (sweep.errors > 0)
+                delay = Math.max(delay, Math.min(ERROR_BACKOFF << Math.min(sweep.errors, 10), MAX_ERROR_BACKOFF));
+            this.scheduler.schedule(() -> sweep(sweep), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            sweep.scheduled.set(false);
+            sweep.pending.values().forEach(p -> p.future.completeExceptionally(new SQLException("statement poller is not running", e)));
+        }
+    }
+
+    private void sweep(ListSweep sweep) {
+        try {
+            sweep.pending.values().removeIf(this::expire);
+            if (!sweep.pending.isEmpty())
+                sweepOnce(sweep);
+            sweep.errors = 0;
+        } catch (RuntimeException e) {
+            // describing everything now would multiply the load that likely caused the error, wait longer instead
+            sweep.errors++;
+            if (!isTransient(e))
+                this.describeMissed(sweep);
+        }
+        if (!sweep.pending.isEmpty()) {
+            scheduleSweep(sweep);
+            return;
+        }
+        sweep.scheduled.set(false);
+        this.sweeps.remove(sweep.client, sweep);
+        // a statement may have been added after the emptiness check
+        if (!sweep.pending.isEmpty() && sweep.scheduled.compareAndSet(false, true))
+            scheduleSweep(sweep);
+    }
+
+    /**
+     * After a listing that failed for good, counts it as missed and describes the statements missed too often.
+     */
+    private void describeMissed(ListSweep sweep) {
+        long now = System.currentTimeMillis();
+        for (PendingStatement p : sweep.pending.values()) {
+            if (p.nextPollAt > now)
+                continue;
+            if (++p.missed < MAX_MISSED_SWEEPS || !describe(p))
+                p.advance();
+        }
+    }
+
+    private void sweepOnce(ListSweep sweep) {
+        long now = System.currentTimeMillis();
+        if (sweep.pending.values().stream().noneMatch(p -> p.nextPollAt <= now))
+            return;
+        Map<String, StatusString> seen = new HashMap<>();
+        String nextToken = null;
+        for (int page = 0; page < MAX_LIST_PAGES; page++) {
+            ListStatementsResponse resp = sweep.client.listStatements(ListStatementsRequest.builder()
+                    .statementName(STATEMENT_NAME)
+                    .status(StatusString.ALL)
+                    .maxResults(100)
+                    .nextToken(nextToken)
+                    .build());
+            for (StatementData d : resp.statements()) {
+                if (sweep.pending.containsKey(d.id()))
+                    seen.put(d.id(), d.status());
+            }
+            nextToken = resp.nextToken();
+            if (nextToken == null || seen.size() == sweep.pending.size())
+                break;
+        }
+        for (PendingStatement p : sweep.pending.values()) {
+            StatusString status = seen.get(p.id);
+            if (status == null && p.nextPollAt <= now)
+                p.missed++;
+            else if (status != null)
+                p.missed = 0;
+            boolean done = status != null && status != StatusString.PICKED && status != StatusString.SUBMITTED
+                    && status != StatusString.STARTED;
+            // not in the listing for a while, ask for it directly at its own pace
+            if (status == null && p.missed >= MAX_MISSED_SWEEPS && p.nextPollAt <= now)
+                done = true;
+            if (done && describe(p))
+                continue;
+            if (p.nextPollAt <= now)
+                p.advance();
+        }
+    }
+
+    /**
+     * @return true for throttling and other errors worth trying again
+     */
+    static boolean isTransient(RuntimeException e) {
+        if (e instanceof SdkServiceException && ((SdkServiceException) e).isThrottlingException())
+            return true;
+        return e instanceof SdkException && ((SdkException) e).retryable();
+    }
+
+    static void cancel(RedshiftDataClient client, String id) {
+        try {
+            client.cancelStatement(CancelStatementRequest.builder().id(id).build());
+        } catch (RedshiftDataException ignored) {
+
+        }
+    }
+
+    private static class ListSweep {
+        final RedshiftDataClient client;
+        final Map<String, PendingStatement> pending = new ConcurrentHashMap<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        // failed listings in a row, only touched by the sweep itself
+        int errors;
+
+        ListSweep(RedshiftDataClient client) {
+            this.client = client;
+        }
+    }
+
+    private static class PendingStatement {
+        final RedshiftDataClient client;
+        final String id;
+        final String fingerprint;
+        final PollStrategy strategy;
+        final int timeout;
+        final long submittedAt = System.currentTimeMillis();
+        final CompletableFuture<DescribeStatementResponse> future = new CompletableFuture<>();
+        int attempt;
+        // transient describe errors in a row, each doubles the wait before the next poll
+        int errors;
+        // due sweeps this statement was missing from
+        int missed;
+        volatile long nextPollAt;
+
+        PendingStatement(RedshiftDataClient client, String id, String fingerprint, PollStrategy strategy, int timeout) {
+            this.client = client;
+            this.id = id;
+            this.fingerprint = fingerprint;
+            this.strategy = strategy;
+            this.timeout = timeout;
+        }
+
+        /**
+         * Asks the strategy for the next poll time.
+         * @return delay in milliseconds until then
+         */
+        long advance() {
+            long now = System.currentTimeMillis();
+            long delay = Math.max(0, this.strategy.nextDelay(this.fingerprint, this.attempt++, now - this.submittedAt));
+            if (this.errors > 0)
+                delay = Math.max(delay, Math.min(ERROR_BACKOFF << Math.min(this.errors, 10), MAX_ERROR_BACKOFF));
+            this.nextPollAt = now + delay;
+            return delay;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package dev.chrisdd.redshiftdata;
+
+import dev.chrisdd.redshiftdata.config.RedshiftConfiguration;
+import software.amazon.awssdk.services.redshiftdata.model.SqlParameter;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Driver-wide memory of finished queries for connections with a {@code resultReuseWindow}. The Data API keeps
+ * a statement's result for about a day, so a repeated query within the window reads the stored result of
+ * the earlier statement id instead of queueing and running again. Keyed like {@link RedshiftResultCache}.
+ */
+class RedshiftStatementReuse {
+    static final String MAX_BYTES_PROPERTY = "redshiftdata.statementReuseMaxBytes";
+    /**
+     * Longest window honoured, a little short of the day the service keeps results for.
+     */
+    static final long MAX_WINDOW = 23 * 60 * 60 * 1000L;
+
+    private static final RedshiftStatementReuse INSTANCE = new RedshiftStatementReuse(Long.getLong(MAX_BYTES_PROPERTY, 4L << 20));
+
+    private final RedshiftCache<List<Object>, RedshiftStatementHandle> handles;
+
+    static RedshiftStatementReuse getInstance() {
+        return INSTANCE;
+    }
+
+    RedshiftStatementReuse(long maxBytes) {
+        // only statements with a result are worth remembering, the weight is roughly the id and sql held
+        this.handles = new RedshiftCache<>(maxBytes, h -> h.hasResultSet() ? 256 + 2L * h.getSql().length() : -1);
+    }
+
+    /**
+     * @param keyword first word of the statement, see {@link RedshiftSqlShape#getKeyword()}
+     */
+    static boolean isReusable(RedshiftConfiguration config, String keyword) {
+        if (config.getResultReuseWindow() <= 0)
+            return false;
+        return keyword.equals("select") || keyword.equals("with");
+    }
+
+    /**
+     * @return the finished statement of an earlier run within the window, null if there is none
+     */
+    RedshiftStatementHandle lookup(RedshiftConnection conn, String sql, SqlParameter[] params) {
+        return this.handles.getIfPresent(RedshiftResultCache.key(conn.getConfig(), sql, params));
+    }
+
+    /**
+     * Runs the query and remembers its statement, concurrent callers of the same query share one run.
+     */
+    RedshiftStatementHandle execute(RedshiftConnection conn, String sql, SqlParameter[] params) throws SQLException {
+        RedshiftConfiguration config = conn.getConfig();
+        long window = Math.min(config.getResultReuseWindow(), MAX_WINDOW);
+        return this.handles.get(RedshiftResultCache.key(config, sql, params), window, () -> {
+            try {
+                return conn.execute(sql, params);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Forgets the statement of the query, for results the service no longer has.
+     */
+    void invalidate(RedshiftConnection conn, String sql, SqlParameter[] params) {
+        this.handles.invalidate(RedshiftResultCache.key(conn.getConfig(), sql, params));
+    }
+
+    void clear() {
+        this.handles.clear();
+    }
+
+    int size() {
+        return this.handles.size();
+    }
+
+    long getHits() {
+        return this.handles.getHits();
+    }
+
+    long getMisses() {
+        return this.handles.getMisses();
+    }
+}
@@ -0,0 +1,110 @@
+package dev.chrisdd.redshiftdata;
+
+/**
+ * Normalizes sql text so that statements differing only in literals, whitespace, comments or keyword case
+ * share the same fingerprint. String and numeric literals are replaced with {@code ?},
+ * quoted identifiers are kept as written, so are the bodies of {@code $tag$...$tag$} strings when literals are kept.
+ * Comments count as whitespace, so the line break ending a
+ * {@code --} comment is never lost.
+ */
+final class SqlFingerprint {
+
+    private SqlFingerprint() {
+    }
+
+    static String of(String sql) {
+        return normalize(sql, false);
+    }
+
+    /**
+     * Same as {@link #of} but keeps the literals, statements with equal results normalize alike.
+     */
+    static String normalize(String sql) {
+        return normalize(sql, true);
+    }
+
+    private static String normalize(String sql, boolean literals) {
+        StringBuilder b = new StringBuilder(sql.length());
+        boolean space = false;
+        int n = sql.length();
+        for (int i = 0; i < n; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? n : end;
+                space = true;
+                continue;
+            }
+            if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 1;
+                space = true;
+                continue;
+            }
+            if (space && b.length() > 0)
+                b.append(' ');
+            space = false;
+            if (c == '\'') {
+                // skip the literal, '' is an escaped quote
+                int start = i;
+                i++;
+                while (i < n) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < n && sql.charAt(i + 1) == '\'')
+                            i++;
+                        else
+                            break;
+                    }
+                    i++;
+                }
+                if (literals)
+                    b.append(sql, start, Math.min(i + 1, n));
+                else
+                    b.append('?');
+            } else if (c == '$' && !isIdentifierPart(b) && dollarTagEnd(sql, i) > 0) {
+                String tag = sql.substring(i, dollarTagEnd(sql, i));
+                int close = sql.indexOf(tag, i + tag.length());
+                int end = close < 0 ? n : close + tag.length();
+                if (literals)
+                    b.append(sql, i, end);
+                else
+                    b.append('?');
+                i = end - 1;
+            } else if (c == '"') {
+                int end = sql.indexOf('"', i + 1);
+                if (end < 0)
+                    end = n - 1;
+                b.append(sql, i, end + 1);
+                i = end;
+            } else if (Character.isDigit(c) && !isIdentifierPart(b) && !literals) {
+                while (i + 1 < n && (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.'))
+                    i++;
+                b.append('?');
+            } else {
+                b.append(Character.toLowerCase(c));
+            }
+        }
+        return b.toString();
+    }
+
+    /**
+     * @return the index after the {@code $tag$} opening a dollar quoted string at i, -1 if there is none
+     */
+    private static int dollarTagEnd(String sql, int i) {
+        int j = i + 1;
+        while (j < sql.length() && (Character.isLetter(sql.charAt(j)) || sql.charAt(j) == '_' || (j > i + 1 && Character.isDigit(sql.charAt(j)))))
+            j++;
+        return j < sql.length() && sql.charAt(j) == '$' ? j + 1 : -1;
+    }
+
+    private static boolean isIdentifierPart(StringBuilder b) {
+        if (b.length() == 0)
+            return false;
+        char last = b.charAt(b.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+    }
+}
@@ -1,15 +1,19 @@
 package dev.chrisdd.redshiftdata.config;
 
 import dev.chrisdd.redshiftdata.RedshiftDriver;
+import dev.chrisdd.redshiftdata.simulator.RedshiftDataSimulator;
+import dev.chrisdd.redshiftdata.simulator.SimulatorSettings;
 import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
 import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.redshiftdata.RedshiftDataClient;
 import software.amazon.awssdk.services.redshiftdata.RedshiftDataClientBuilder;
 import software.amazon.awssdk.services.redshiftdata.model.RedshiftDataRequest;
 
 import java.sql.DriverPropertyInfo;
 import java.sql.SQLException;
-import java.util.Properties;
+import java.time.Duration;
+import java.util.*;
 import java.util.regex.Matcher;
 
 public class RedshiftConfiguration {
@@ -19,6 +23,56 @@ public class RedshiftConfiguration {
     static final String DBUSER_PROPERTY = "dbUser";
     static final String SECRET_ARN_PROPERTY = "secretArn";
     static final String NETWORK_TIMEOUT_PROPERTY = "networkTimeout";
+    static final String POLL_MODE_PROPERTY = "pollMode";
+    static final String POLL_STRATEGY_PROPERTY = "pollStrategy";
+    static final String REGION_PROPERTY = "region";
+    static final String PROFILE_PROPERTY = "profile";
+    static final String MAX_CONNECTIONS_PROPERTY = "maxConnections";
+    static final String CONNECTION_TIMEOUT_PROPERTY = "connectionTimeout";
+    static final String PREFETCH_PAGES_PROPERTY = "prefetchPages";
+    static final String CLIENT_FACTORY_PROPERTY = "clientFactory";
+    static final String BATCH_CONCURRENCY_PROPERTY = "batchConcurrency";
+    static final String RESULT_CACHE_TTL_PROPERTY = "resultCacheTtl";
+    static final String RESULT_REUSE_WINDOW_PROPERTY = "resultReuseWindow";
+    static final String CATALOG_CACHE_TTL_PROPERTY = "catalogCacheTtl";
+    static final String METADATA_CONCURRENCY_PROPERTY = "metadataConcurrency";
+    static final String CATALOG_MODE_PROPERTY = "catalogMode";
+    static final String CACHE_SERVER_INFO_PROPERTY = "cacheServerInfo";
+    static final String WARMUP_SCHEMAS_PROPERTY = "warmupSchemas";
+
+    public enum PollMode {
+        /** one DescribeStatement call per statement per poll */
+        DESCRIBE,
+        /** one ListStatements call for all in-flight statements per poll */
+        LIST
+    }
+
+    public enum CatalogMode {
+        /** ListSchemas, ListTables and DescribeTable calls */
+        API,
+        /** one query against the svv_* system views per catalog call */
+        SQL
+    }
+
+    // properties that may also be given as url parameters
+    static final Set<String> URL_PROPERTIES = new HashSet<>(Arrays.asList(
+            POLL_MODE_PROPERTY,
+            POLL_STRATEGY_PROPERTY,
+            REGION_PROPERTY,
+            PROFILE_PROPERTY,
+            MAX_CONNECTIONS_PROPERTY,
+            CONNECTION_TIMEOUT_PROPERTY,
+            PREFETCH_PAGES_PROPERTY,
+            CLIENT_FACTORY_PROPERTY,
+            BATCH_CONCURRENCY_PROPERTY,
+            RESULT_CACHE_TTL_PROPERTY,
+            RESULT_REUSE_WINDOW_PROPERTY,
+            CATALOG_CACHE_TTL_PROPERTY,
+            METADATA_CONCURRENCY_PROPERTY,
+            CATALOG_MODE_PROPERTY,
+            CACHE_SERVER_INFO_PROPERTY,
+            WARMUP_SCHEMAS_PROPERTY
+    ));
 
     String database;
     String workgroupName;
@@ -26,6 +80,24 @@ public class RedshiftConfiguration {
     String dbUser;
     String secretArn;
     int networkTimeout;
+    PollMode pollMode = PollMode.DESCRIBE;
+    String pollStrategy = "adaptive";
+    String region;
+    String profile;
+    int maxConnections = 50;
+    int connectionTimeout = 2000;
+    int prefetchPages = 2;
+    String clientFactory = "aws";
+    int batchConcurrency = 1;
+    long resultCacheTtl;
+    long resultReuseWindow;
+    long catalogCacheTtl;
+    int metadataConcurrency = 8;
+    CatalogMode catalogMode = CatalogMode.API;
+    boolean cacheServerInfo = true;
+    String warmupSchemas;
+    // redshiftdata.simulator.* settings given as url parameters or connection properties
+    Properties simulatorProperties = new Properties();
     String url;
 
     public String getDatabase() {
@@ -76,6 +148,167 @@ public class RedshiftConfiguration {
         this.networkTimeout = networkTimeout;
     }
 
+    public PollMode getPollMode() {
+        return pollMode;
+    }
+
+    public void setPollMode(PollMode pollMode) {
+        this.pollMode = pollMode;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public void setConnectionTimeout(int connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    public int getPrefetchPages() {
+        return prefetchPages;
+    }
+
+    /**
+     * @param prefetchPages result pages downloaded ahead of the reader in the background, 0 to disable
+     */
+    public void setPrefetchPages(int prefetchPages) {
+        this.prefetchPages = prefetchPages;
+    }
+
+    public String getPollStrategy() {
+        return pollStrategy;
+    }
+
+    public void setPollStrategy(String pollStrategy) {
+        this.pollStrategy = pollStrategy;
+    }
+
+    public String getClientFactory() {
+        return clientFactory;
+    }
+
+    /**
+     * @param clientFactory aws, simulator or the class name of a {@link RedshiftDataClientFactory}
+     */
+    public void setClientFactory(String clientFactory) {
+        this.clientFactory = clientFactory;
+    }
+
+    public int getBatchConcurrency() {
+        return batchConcurrency;
+    }
+
+    /**
+     * @param batchConcurrency statements of a prepared batch in flight at once, above 1 rows may be applied out of order
+     */
+    public void setBatchConcurrency(int batchConcurrency) {
+        this.batchConcurrency = Math.max(batchConcurrency, 1);
+    }
+
+    public long getResultCacheTtl() {
+        return resultCacheTtl;
+    }
+
+    /**
+     * @param resultCacheTtl milliseconds a query result is served from the driver-wide result cache, 0 to disable
+     */
+    public void setResultCacheTtl(long resultCacheTtl) {
+        this.resultCacheTtl = resultCacheTtl;
+    }
+
+    public long getResultReuseWindow() {
+        return resultReuseWindow;
+    }
+
+    /**
+     * @param resultReuseWindow milliseconds a repeated query reads the stored result of its earlier statement
+     *                          instead of running again, 0 to disable
+     */
+    public void setResultReuseWindow(long resultReuseWindow) {
+        this.resultReuseWindow = resultReuseWindow;
+    }
+
+    public long getCatalogCacheTtl() {
+        return catalogCacheTtl;
+    }
+
+    /**
+     * @param catalogCacheTtl milliseconds catalog listings of {@link java.sql.DatabaseMetaData} are served from
+     *                        the driver-wide catalog cache, 0 to disable
+     */
+    public void setCatalogCacheTtl(long catalogCacheTtl) {
+        this.catalogCacheTtl = catalogCacheTtl;
+    }
+
+    public int getMetadataConcurrency() {
+        return metadataConcurrency;
+    }
+
+    /**
+     * @param metadataConcurrency tables described at once when {@link java.sql.DatabaseMetaData#getColumns} matches a pattern
+     */
+    public void setMetadataConcurrency(int metadataConcurrency) {
+        this.metadataConcurrency = Math.max(metadataConcurrency, 1);
+    }
+
+    public CatalogMode getCatalogMode() {
+        return catalogMode;
+    }
+
+    /**
+     * @param catalogMode how {@link java.sql.DatabaseMetaData} lists schemas, tables and columns
+     */
+    public void setCatalogMode(CatalogMode catalogMode) {
+        this.catalogMode = catalogMode;
+    }
+
+    public boolean isCacheServerInfo() {
+        return cacheServerInfo;
+    }
+
+    /**
+     * @param cacheServerInfo keep the user and version of each target for the life of the driver instead of asking the server every time
+     */
+    public void setCacheServerInfo(boolean cacheServerInfo) {
+        this.cacheServerInfo = cacheServerInfo;
+    }
+
+    public String getWarmupSchemas() {
+        return warmupSchemas;
+    }
+
+    /**
+     * @param warmupSchemas comma separated schema patterns whose table lists are loaded into the catalog cache
+     *                      in the background on connect, needs a {@code catalogCacheTtl}
+     */
+    public void setWarmupSchemas(String warmupSchemas) {
+        this.warmupSchemas = warmupSchemas;
+    }
+
 
 
     public String getUrl(){
@@ -85,13 +318,37 @@ public class RedshiftConfiguration {
     public static DriverPropertyInfo[] getPropertyInfo() {
         DriverPropertyInfo database = new DriverPropertyInfo(DATABASE_PROPERTY,"");
         database.required = true;
+        DriverPropertyInfo pollMode = new DriverPropertyInfo(POLL_MODE_PROPERTY,PollMode.DESCRIBE.name());
+        pollMode.choices = new String[]{PollMode.DESCRIBE.name(),PollMode.LIST.name()};
+        DriverPropertyInfo pollStrategy = new DriverPropertyInfo(POLL_STRATEGY_PROPERTY,"adaptive");
+        pollStrategy.description = "backoff, adaptive or the class name of a PollStrategy implementation";
+        DriverPropertyInfo clientFactory = new DriverPropertyInfo(CLIENT_FACTORY_PROPERTY,"aws");
+        clientFactory.description = "aws, simulator or the class name of a RedshiftDataClientFactory implementation";
+        DriverPropertyInfo catalogMode = new DriverPropertyInfo(CATALOG_MODE_PROPERTY,CatalogMode.API.name());
+        catalogMode.choices = new String[]{CatalogMode.API.name(),CatalogMode.SQL.name()};
         return new DriverPropertyInfo[]{
                 database,
                 new DriverPropertyInfo(WORKGROUP_NAME_PROPERTY,""),
                 new DriverPropertyInfo(CLUSTER_IDENTIFIER_PROPERTY,""),
                 new DriverPropertyInfo(DBUSER_PROPERTY,""),
                 new DriverPropertyInfo(SECRET_ARN_PROPERTY,""),
-                new DriverPropertyInfo(NETWORK_TIMEOUT_PROPERTY,"60000")
+                new DriverPropertyInfo(NETWORK_TIMEOUT_PROPERTY,"60000"),
+                pollMode,
+                pollStrategy,
+                new DriverPropertyInfo(REGION_PROPERTY,""),
+                new DriverPropertyInfo(PROFILE_PROPERTY,""),
+                new DriverPropertyInfo(MAX_CONNECTIONS_PROPERTY,"50"),
+                new DriverPropertyInfo(CONNECTION_TIMEOUT_PROPERTY,"2000"),
+                new DriverPropertyInfo(PREFETCH_PAGES_PROPERTY,"2"),
+                clientFactory,
+                new DriverPropertyInfo(BATCH_CONCURRENCY_PROPERTY,"1"),
+                new DriverPropertyInfo(RESULT_CACHE_TTL_PROPERTY,"0"),
+                new DriverPropertyInfo(RESULT_REUSE_WINDOW_PROPERTY,"0"),
+                new DriverPropertyInfo(CATALOG_CACHE_TTL_PROPERTY,"0"),
+                new DriverPropertyInfo(METADATA_CONCURRENCY_PROPERTY,"8"),
+                catalogMode,
+                new DriverPropertyInfo(CACHE_SERVER_INFO_PROPERTY,"true"),
+                new DriverPropertyInfo(WARMUP_SCHEMAS_PROPERTY,"")
         };
     }
 
@@ -102,6 +359,25 @@ public class RedshiftConfiguration {
             case CLUSTER_IDENTIFIER_PROPERTY: setClusterIdentifier(value);break;
             case SECRET_ARN_PROPERTY: setSecretArn(value);break;
             case NETWORK_TIMEOUT_PROPERTY: setNetworkTimeout(Integer.parseUnsignedInt(value));break;
+            case POLL_MODE_PROPERTY: setPollMode(PollMode.valueOf(value.toUpperCase()));break;
+            case POLL_STRATEGY_PROPERTY: setPollStrategy(value);break;
+            case REGION_PROPERTY: setRegion(value);break;
+            case PROFILE_PROPERTY: setProfile(value);break;
+            case MAX_CONNECTIONS_PROPERTY: setMaxConnections(Integer.parseUnsignedInt(value));break;
+            case CONNECTION_TIMEOUT_PROPERTY: setConnectionTimeout(Integer.parseUnsignedInt(value));break;
+            case PREFETCH_PAGES_PROPERTY: setPrefetchPages(Integer.parseUnsignedInt(value));break;
+            case CLIENT_FACTORY_PROPERTY: setClientFactory(value);break;
+            case BATCH_CONCURRENCY_PROPERTY: setBatchConcurrency(Integer.parseUnsignedInt(value));break;
+            case RESULT_CACHE_TTL_PROPERTY: setResultCacheTtl(Long.parseUnsignedLong(value));break;
+            case RESULT_REUSE_WINDOW_PROPERTY: setResultReuseWindow(Long.parseUnsignedLong(value));break;
+            case CATALOG_CACHE_TTL_PROPERTY: setCatalogCacheTtl(Long.parseUnsignedLong(value));break;
+            case METADATA_CONCURRENCY_PROPERTY: setMetadataConcurrency(Integer.parseUnsignedInt(value));break;
+            case CATALOG_MODE_PROPERTY: setCatalogMode(CatalogMode.valueOf(value.toUpperCase()));break;
+            case CACHE_SERVER_INFO_PROPERTY: setCacheServerInfo(Boolean.parseBoolean(value));break;
+            case WARMUP_SCHEMAS_PROPERTY: setWarmupSchemas(value);break;
+            default:
+                if (prop.startsWith(SimulatorSettings.PREFIX))
+                    this.simulatorProperties.setProperty(prop,value);
         }
 
     }
@@ -128,6 +404,8 @@ public class RedshiftConfiguration {
                     this.setSecretArn(value);
                 }else if (key.equals("dbUser") && !value.isEmpty()){
                     this.setDbUser(value);
+                }else if (URL_PROPERTIES.contains(key) || key.startsWith(SimulatorSettings.PREFIX)){
+                    this.setProperties(key,value);
                 }else{
                     // allow other jvm options
                     System.setProperty(key,value);
@@ -141,11 +419,61 @@ public class RedshiftConfiguration {
         this.url = url;
     }
 
-    public RedshiftDataClient getClient(){
+    /**
+     * Builds a new client with the configured factory, connections share them through the driver's
+     * client registry keyed by {@link #getClientKey()}.
+     */
+    public RedshiftDataClient getClient() throws SQLException {
+        switch (this.clientFactory) {
+            case "aws":
+                return this.getAwsClient();
+            case "simulator":
+                return new RedshiftDataSimulator.Factory().create(this);
+            default:
+                RedshiftDataClientFactory factory;
+                try {
+                    factory = (RedshiftDataClientFactory) Class.forName(this.clientFactory).getConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new SQLException(String.format("invalid client factory %s", this.clientFactory), e);
+                }
+                return factory.create(this);
+        }
+    }
+
+    private RedshiftDataClient getAwsClient(){
         RedshiftDataClientBuilder b = RedshiftDataClient.builder()
-                .httpClientBuilder(ApacheHttpClient.builder());
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(this.maxConnections)
+                        .connectionTimeout(Duration.ofMillis(this.connectionTimeout)));
+        if (this.region != null && !this.region.isEmpty())
+            b = b.region(Region.of(this.region));
+        if (this.profile != null && !this.profile.isEmpty())
+            b = b.credentialsProvider(ProfileCredentialsProvider.create(this.profile));
         return b.build();
     }
 
+    /**
+     * @return the {@code redshiftdata.simulator.*} system properties overridden by the ones of this connection
+     */
+    public Map<String,String> getSimulatorProperties(){
+        return SimulatorSettings.properties(this.simulatorProperties);
+    }
+
+    /**
+     * @return everything {@link #getClient()} depends on, configurations with equal keys can share a client
+     */
+    public List<Object> getClientKey(){
+        if (this.clientFactory.equals("simulator"))
+            return Arrays.asList(this.clientFactory,this.getSimulatorProperties());
+        return Arrays.asList(this.clientFactory,this.region,this.profile,this.maxConnections,this.connectionTimeout);
+    }
+
+    /**
+     * @return the client, database and identity statements run against, configurations with equal keys see the same data
+     */
+    public List<Object> getTargetKey(){
+        return Arrays.asList(this.getClientKey(),this.database,this.workgroupName,this.clusterIdentifier,this.dbUser,this.secretArn);
+    }
+
 
 }
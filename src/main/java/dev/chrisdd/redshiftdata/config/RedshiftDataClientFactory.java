@@ -0,0 +1,14 @@
+package dev.chrisdd.redshiftdata.config;
+
+import software.amazon.awssdk.services.redshiftdata.RedshiftDataClient;
+
+import java.sql.SQLException;
+
+/**
+ * Creates the Data API client of a connection, selected with the {@code clientFactory} property.
+ * Implementations need a public no argument constructor. Connections with equal
+ * {@link RedshiftConfiguration#getClientKey()} share the created client.
+ */
+public interface RedshiftDataClientFactory {
+    RedshiftDataClient create(RedshiftConfiguration config) throws SQLException;
+}
@@ -0,0 +1,81 @@
+package dev.chrisdd.redshiftdata.simulator;
+
+import java.util.Random;
+
+/**
+ * A latency distribution in milliseconds, written as
+ * <pre>
+ *     fixed:MS
+ *     uniform:MIN:MAX
+ *     exponential:MEAN
+ *     lognormal:MEDIAN:SIGMA
+ * </pre>
+ * lognormal is the usual shape of query runtimes, a few slow outliers behind a tight median.
+ */
+public final class Latency {
+    public static final Latency NONE = new Latency("fixed", 0, 0);
+
+    private final String kind;
+    private final double a;
+    private final double b;
+
+    private Latency(String kind, double a, double b) {
+        this.kind = kind;
+        this.a = a;
+        this.b = b;
+    }
+
+    public static Latency fixed(long ms) {
+        return new Latency("fixed", ms, 0);
+    }
+
+    public static Latency parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed":
+                    return check(new Latency("fixed", Double.parseDouble(parts[1]), 0), parts.length == 2, spec);
+                case "uniform":
+                    return check(new Latency("uniform", Double.parseDouble(parts[1]), Double.parseDouble(parts[2])), parts.length == 3, spec);
+                case "exponential":
+                    return check(new Latency("exponential", Double.parseDouble(parts[1]), 0), parts.length == 2, spec);
+                case "lognormal":
+                    return check(new Latency("lognormal", Double.parseDouble(parts[1]), Double.parseDouble(parts[2])), parts.length == 3, spec);
+                default:
+                    throw new IllegalArgumentException(String.format("unknown latency distribution %s", spec));
+            }
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("invalid latency %s", spec), e);
+        }
+    }
+
+    private static Latency check(Latency l, boolean valid, String spec) {
+        if (!valid || l.a < 0 || l.b < 0)
+            throw new IllegalArgumentException(String.format("invalid latency %s", spec));
+        return l;
+    }
+
+    public long sample(Random random) {
+        switch (this.kind) {
+            case "uniform":
+                return Math.round(this.a + random.nextDouble() * (this.b - this.a));
+            case "exponential":
+                return Math.round(-this.a * Math.log(1 - random.nextDouble()));
+            case "lognormal":
+                return Math.round(this.a * Math.exp(this.b * random.nextGaussian()));
+            default:
+                return Math.round(this.a);
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (this.kind) {
+            case "uniform":
+            case "lognormal":
+                return String.format("%s:%s:%s", this.kind, this.a, this.b);
+            default:
+                return String.format("%s:%s", this.kind, this.a);
+        }
+    }
+}
@@ -0,0 +1,805 @@
+package dev.chrisdd.redshiftdata.simulator;
+
+import dev.chrisdd.redshiftdata.config.RedshiftConfiguration;
+import dev.chrisdd.redshiftdata.config.RedshiftDataClientFactory;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.services.redshiftdata.RedshiftDataClient;
+import software.amazon.awssdk.services.redshiftdata.model.*;
+import software.amazon.awssdk.services.redshiftdata.paginators.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory stand-in for the Data API, so polling, paging and concurrency can be load tested without
+ * a cluster. Statements move through SUBMITTED/PICKED, STARTED and FINISHED/FAILED/ABORTED on the wall clock
+ * following the configured latency distributions, results are generated on demand page by page.
+ * <p>
+ * Queries (select, with, show, values, explain) return {@link SimulatorSettings#getResultRows()} synthetic rows
+ * unless a result was registered for their sql, inserts report the number of value tuples and other statements
+ * affect {@link SimulatorSettings#getResultRows()} rows. The catalog holds generated schemas, tables and columns.
+ */
+public class RedshiftDataSimulator implements RedshiftDataClient {
+    /**
+     * limits of the real api
+     */
+    public static final int MAX_BATCH_STATEMENTS = 40;
+    public static final int MAX_SQL_BYTES = 100 * 1024;
+    private static final int MAX_KEPT_STATEMENTS = 10_000;
+    private static final String[] TYPES = {"int8", "varchar", "float8", "bool", "timestamptz", "numeric", "date"};
+    private static final Pattern WORD = Pattern.compile("^[\\s(]*([A-Za-z]+)");
+
+    private final SimulatorSettings settings;
+    private final Random random;
+    // all statements, oldest first, guarded by itself
+    private final LinkedHashMap<String, SimStatement> statements = new LinkedHashMap<String, SimStatement>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SimStatement> eldest) {
+            return size() > MAX_KEPT_STATEMENTS;
+        }
+    };
+    private final Map<String, SimStatement> active = new ConcurrentHashMap<>();
+    private final Map<String, Registered> registered = new ConcurrentHashMap<>();
+    private final AtomicLong queryIds = new AtomicLong(100_000);
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong submitted = new AtomicLong();
+
+    /**
+     * Selected with {@code clientFactory=simulator}, settings come from {@link RedshiftConfiguration#getSimulatorProperties()}.
+     */
+    public static class Factory implements RedshiftDataClientFactory {
+        @Override
+        public RedshiftDataClient create(RedshiftConfiguration config) {
+            return new RedshiftDataSimulator(SimulatorSettings.fromProperties(config.getSimulatorProperties()));
+        }
+    }
+
+    public RedshiftDataSimulator(SimulatorSettings settings) {
+        this.settings = settings;
+        this.random = new Random(settings.seed);
+        Field user = Field.fromStringValue("simulator");
+        Field version = Field.fromStringValue("PostgreSQL 8.0.2 on i686-pc-linux-gnu, compiled by GCC gcc (GCC) 3.4.2 20041017 (Red Hat 3.4.2-6.fc3), Redshift 1.0.0 (simulator)");
+        registerResult("select current_user()", column("current_user", "name"), user);
+        registerResult("select version()", column("version", "text"), version);
+        // the server info lookup of the driver's database metadata
+        registerResult("select current_user(), version()", Arrays.asList(column("current_user", "name"), column("version", "text")),
+                Collections.singletonList(Arrays.asList(user, version)));
+    }
+
+    /**
+     * Makes statements with this sql, compared ignoring case, surrounding whitespace and a trailing semicolon,
+     * return the given rows.
+     */
+    public void registerResult(String sql, List<ColumnMetadata> columns, List<List<Field>> records) {
+        this.registered.put(normalize(sql), new Registered(columns, records));
+    }
+
+    private void registerResult(String sql, ColumnMetadata column, Field value) {
+        registerResult(sql, Collections.singletonList(column), Collections.singletonList(Collections.singletonList(value)));
+    }
+
+    public SimulatorSettings getSettings() {
+        return this.settings;
+    }
+
+    /**
+     * @return api calls received, including the throttled ones
+     */
+    public long getCalls() {
+        return this.calls.get();
+    }
+
+    public long getThrottledCalls() {
+        return this.throttled.get();
+    }
+
+    /**
+     * @return statements and batches accepted so far
+     */
+    public long getSubmittedStatements() {
+        return this.submitted.get();
+    }
+
+    public int getActiveStatements() {
+        long now = System.currentTimeMillis();
+        this.active.values().removeIf(s -> s.isTerminal(now));
+        return this.active.size();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    // statements
+
+    @Override
+    public ExecuteStatementResponse executeStatement(ExecuteStatementRequest req) {
+        call();
+        checkSql(req.sql());
+        SimStatement s = submit(Collections.singletonList(req.sql()), false, req.statementName());
+        return ExecuteStatementResponse.builder()
+                .id(s.id)
+                .createdAt(Instant.ofEpochMilli(s.created))
+                .database(req.database())
+                .dbUser(req.dbUser())
+                .clusterIdentifier(req.clusterIdentifier())
+                .workgroupName(req.workgroupName())
+                .secretArn(req.secretArn())
+                .build();
+    }
+
+    @Override
+    public BatchExecuteStatementResponse batchExecuteStatement(BatchExecuteStatementRequest req) {
+        call();
+        if (!req.hasSqls() || req.sqls().isEmpty())
+            throw validation("sqls must not be empty");
+        if (req.sqls().size() > MAX_BATCH_STATEMENTS)
+            throw validation(String.format("a batch can hold at most %d statements, got %d", MAX_BATCH_STATEMENTS, req.sqls().size()));
+        req.sqls().forEach(this::checkSql);
+        SimStatement s = submit(req.sqls(), true, req.statementName());
+        return BatchExecuteStatementResponse.builder()
+                .id(s.id)
+                .createdAt(Instant.ofEpochMilli(s.created))
+                .database(req.database())
+                .dbUser(req.dbUser())
+                .clusterIdentifier(req.clusterIdentifier())
+                .workgroupName(req.workgroupName())
+                .secretArn(req.secretArn())
+                .build();
+    }
+
+    @Override
+    public DescribeStatementResponse describeStatement(DescribeStatementRequest req) {
+        call();
+        long now = System.currentTimeMillis();
+        int sub = subIndex(req.id());
+        SimStatement s = find(req.id());
+        if (sub >= 0)
+            return s.describeSub(sub, now);
+        return s.describe(now);
+    }
+
+    @Override
+    public CancelStatementResponse cancelStatement(CancelStatementRequest req) {
+        call();
+        SimStatement s = find(req.id());
+        long now = System.currentTimeMillis();
+        synchronized (s) {
+            if (s.isTerminal(now))
+                throw validation(String.format("Could not cancel a query that is already in %s state", s.status(now)));
+            s.cancelledAt = now - s.created;
+        }
+        return CancelStatementResponse.builder().status(true).build();
+    }
+
+    @Override
+    public GetStatementResultResponse getStatementResult(GetStatementResultRequest req) {
+        call();
+        long now = System.currentTimeMillis();
+        int subIndex = subIndex(req.id());
+        SimStatement s = find(req.id());
+        if (s.batch && subIndex < 0)
+            throw validation("use the sub-statement id to get the results of a batch");
+        int i = Math.max(subIndex, 0);
+        if (s.subStatus(i, now) != StatementStatusString.FINISHED)
+            throw validation(String.format("Query %s has not finished", req.id()));
+        Sub sub = s.subs[i];
+        if (!sub.hasResultSet)
+            throw validation("Query does not have result. Please check query status with DescribeStatement");
+        int page = token(req.nextToken());
+        int from = page * this.settings.pageSize;
+        int to = (int) Math.min(sub.rows, (long) from + this.settings.pageSize);
+        List<List<Field>> records;
+        if (sub.registered != null)
+            records = sub.registered.records.subList(Math.min(from, to), to);
+        else
+            records = generate(sub, s.queryId * 31 + i, page, from, to);
+        return GetStatementResultResponse.builder()
+                .columnMetadata(sub.columns)
+                .records(records)
+                .totalNumRows(sub.rows)
+                .nextToken(to < sub.rows ? Integer.toString(page + 1) : null)
+                .build();
+    }
+
+    @Override
+    public ListStatementsResponse listStatements(ListStatementsRequest req) {
+        call();
+        long now = System.currentTimeMillis();
+        List<SimStatement> all;
+        synchronized (this.statements) {
+            all = new ArrayList<>(this.statements.values());
+        }
+        Collections.reverse(all);
+        List<StatementData> matching = new ArrayList<>();
+        for (SimStatement s : all) {
+            if (req.statementName() != null && (s.name == null || !s.name.startsWith(req.statementName())))
+                continue;
+            StatusString status = s.status(now);
+            if (req.status() != null && req.status() != StatusString.ALL && req.status() != status)
+                continue;
+            matching.add(StatementData.builder()
+                    .id(s.id)
+                    .statementName(s.name)
+                    .status(status)
+                    .createdAt(Instant.ofEpochMilli(s.created))
+                    .updatedAt(Instant.ofEpochMilli(s.updatedAt(now)))
+                    .isBatchStatement(s.batch)
+                    .queryString(s.batch ? null : s.subs[0].sql)
+                    .queryStrings(s.batch ? s.sqls() : null)
+                    .build());
+        }
+        int max = req.maxResults() == null ? 100 : req.maxResults();
+        int from = token(req.nextToken());
+        int to = Math.min(matching.size(), from + max);
+        return ListStatementsResponse.builder()
+                .statements(matching.subList(Math.min(from, to), to))
+                .nextToken(to < matching.size() ? Integer.toString(to) : null)
+                .build();
+    }
+
+    // catalog
+
+    @Override
+    public ListDatabasesResponse listDatabases(ListDatabasesRequest req) {
+        call();
+        Set<String> databases = new LinkedHashSet<>(Arrays.asList("dev", req.database() == null ? "dev" : req.database()));
+        int from = token(req.nextToken());
+        List<String> page = page(new ArrayList<>(databases), from, req.maxResults());
+        return ListDatabasesResponse.builder()
+                .databases(page)
+                .nextToken(next(from, page.size(), databases.size()))
+                .build();
+    }
+
+    @Override
+    public ListSchemasResponse listSchemas(ListSchemasRequest req) {
+        call();
+        List<String> schemas = schemas(req.schemaPattern());
+        int from = token(req.nextToken());
+        List<String> page = page(schemas, from, req.maxResults());
+        return ListSchemasResponse.builder()
+                .schemas(page)
+                .nextToken(next(from, page.size(), schemas.size()))
+                .build();
+    }
+
+    @Override
+    public ListTablesResponse listTables(ListTablesRequest req) {
+        call();
+        List<TableMember> tables = new ArrayList<>();
+        Pattern table = like(req.tablePattern());
+        for (String schema : schemas(req.schemaPattern())) {
+            for (int t = 0; t < this.settings.tablesPerSchema; t++) {
+                String name = "table_" + t;
+                if (table.matcher(name).matches())
+                    tables.add(TableMember.builder().schema(schema).name(name).type("TABLE").build());
+            }
+        }
+        int from = token(req.nextToken());
+        List<TableMember> page = page(tables, from, req.maxResults());
+        return ListTablesResponse.builder()
+                .tables(page)
+                .nextToken(next(from, page.size(), tables.size()))
+                .build();
+    }
+
+    /**
+     * schema and table are taken as LIKE patterns, missing ones match everything
+     */
+    @Override
+    public DescribeTableResponse describeTable(DescribeTableRequest req) {
+        call();
+        List<ColumnMetadata> columns = new ArrayList<>();
+        Pattern table = like(req.table());
+        for (String schema : schemas(req.schema())) {
+            for (int t = 0; t < this.settings.tablesPerSchema; t++) {
+                String name = "table_" + t;
+                if (!table.matcher(name).matches())
+                    continue;
+                for (int c = 0; c < this.settings.columnsPerTable; c++)
+                    columns.add(column(schema, name, c));
+            }
+        }
+        int from = token(req.nextToken());
+        List<ColumnMetadata> page = page(columns, from, req.maxResults());
+        return DescribeTableResponse.builder()
+                .tableName(req.table())
+                .columnList(page)
+                .nextToken(next(from, page.size(), columns.size()))
+                .build();
+    }
+
+    // the sdk interface leaves the paginators unimplemented
+
+    @Override
+    public GetStatementResultIterable getStatementResultPaginator(GetStatementResultRequest req) {
+        return new GetStatementResultIterable(this, req);
+    }
+
+    @Override
+    public ListStatementsIterable listStatementsPaginator(ListStatementsRequest req) {
+        return new ListStatementsIterable(this, req);
+    }
+
+    @Override
+    public ListDatabasesIterable listDatabasesPaginator(ListDatabasesRequest req) {
+        return new ListDatabasesIterable(this, req);
+    }
+
+    @Override
+    public ListSchemasIterable listSchemasPaginator(ListSchemasRequest req) {
+        return new ListSchemasIterable(this, req);
+    }
+
+    @Override
+    public ListTablesIterable listTablesPaginator(ListTablesRequest req) {
+        return new ListTablesIterable(this, req);
+    }
+
+    @Override
+    public DescribeTableIterable describeTablePaginator(DescribeTableRequest req) {
+        return new DescribeTableIterable(this, req);
+    }
+
+    /**
+     * Every call pays the round trip latency and may be throttled.
+     */
+    private void call() {
+        this.calls.incrementAndGet();
+        long ms = this.settings.callLatency.sample(this.random);
+        if (ms > 0) {
+            try {
+                Thread.sleep(ms);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw AbortedException.builder().message("interrupted").build();
+            }
+        }
+        if (this.settings.throttleRate > 0 && this.random.nextDouble() < this.settings.throttleRate) {
+            this.throttled.incrementAndGet();
+            throw RedshiftDataException.builder()
+                    .message("Rate exceeded")
+                    .statusCode(400)
+                    .awsErrorDetails(AwsErrorDetails.builder()
+                            .errorCode("ThrottlingException")
+                            .errorMessage("Rate exceeded")
+                            .serviceName(SERVICE_NAME)
+                            .build())
+                    .build();
+        }
+    }
+
+    private void checkSql(String sql) {
+        if (sql == null || sql.trim().isEmpty())
+            throw validation("sql must not be empty");
+        if (sql.getBytes(StandardCharsets.UTF_8).length > MAX_SQL_BYTES)
+            throw validation(String.format("sql is longer than %d bytes", MAX_SQL_BYTES));
+    }
+
+    private SimStatement submit(List<String> sqls, boolean batch, String name) {
+        if (this.settings.maxActiveStatements > 0 && getActiveStatements() >= this.settings.maxActiveStatements)
+            throw ActiveStatementsExceededException.builder()
+                    .message(String.format("Active statements exceeded the allowed quota (%d)", this.settings.maxActiveStatements))
+                    .build();
+        SimStatement s = new SimStatement(sqls, batch, name);
+        synchronized (this.statements) {
+            this.statements.put(s.id, s);
+        }
+        this.active.put(s.id, s);
+        this.submitted.incrementAndGet();
+        return s;
+    }
+
+    private SimStatement find(String id) {
+        int colon = id == null ? -1 : id.lastIndexOf(':');
+        String key = colon < 0 ? id : id.substring(0, colon);
+        SimStatement s;
+        synchronized (this.statements) {
+            s = this.statements.get(key);
+        }
+        if (s == null || (colon >= 0 && subIndex(id) >= s.subs.length))
+            throw ResourceNotFoundException.builder().message(String.format("Query %s does not exist", id)).resourceId(id).build();
+        return s;
+    }
+
+    /**
+     * @return zero based index of a {@code id:N} sub-statement id, -1 for a statement id
+     */
+    private static int subIndex(String id) {
+        int colon = id == null ? -1 : id.lastIndexOf(':');
+        if (colon < 0)
+            return -1;
+        try {
+            return Integer.parseInt(id.substring(colon + 1)) - 1;
+        } catch (NumberFormatException e) {
+            throw validation(String.format("invalid statement id %s", id));
+        }
+    }
+
+    private List<List<Field>> generate(Sub sub, long seed, int page, int from, int to) {
+        Random r = new Random(this.settings.seed ^ (seed * 1_000_003 + page));
+        List<List<Field>> records = new ArrayList<>(to - from);
+        for (int row = from; row < to; row++) {
+            List<Field> fields = new ArrayList<>(sub.columns.size());
+            for (ColumnMetadata c : sub.columns)
+                fields.add(r.nextInt(20) == 0 ? Field.fromIsNull(true) : value(c.typeName(), r));
+            records.add(fields);
+        }
+        return records;
+    }
+
+    private static Field value(String type, Random r) {
+        switch (type) {
+            case "int8":
+                return Field.fromLongValue((long) r.nextInt(1_000_000));
+            case "float8":
+                return Field.fromDoubleValue(r.nextDouble() * 1000);
+            case "bool":
+                return Field.fromBooleanValue(r.nextBoolean());
+            case "numeric":
+                return Field.fromStringValue(String.format("%d.%02d", r.nextInt(100_000), r.nextInt(100)));
+            case "timestamptz":
+                return Field.fromStringValue(String.format("%04d-%02d-%02d %02d:%02d:%02d.%06d+00",
+                        2000 + r.nextInt(25), 1 + r.nextInt(12), 1 + r.nextInt(28), r.nextInt(24), r.nextInt(60), r.nextInt(60), r.nextInt(1_000_000)));
+            case "date":
+                return Field.fromStringValue(String.format("%04d-%02d-%02d", 2000 + r.nextInt(25), 1 + r.nextInt(12), 1 + r.nextInt(28)));
+            default:
+                return Field.fromStringValue(Long.toString(r.nextLong() & Long.MAX_VALUE, 36));
+        }
+    }
+
+    private List<ColumnMetadata> resultColumns() {
+        List<ColumnMetadata> columns = new ArrayList<>(this.settings.resultColumns);
+        for (int c = 0; c < this.settings.resultColumns; c++)
+            columns.add(column("", "", c));
+        return columns;
+    }
+
+    private static ColumnMetadata column(String name, String type) {
+        return ColumnMetadata.builder().name(name).label(name).typeName(type).length(0).precision(0).scale(0)
+                .nullable(1).schemaName("").tableName("").build();
+    }
+
+    private static ColumnMetadata column(String schema, String table, int c) {
+        String type = TYPES[c % TYPES.length];
+        return ColumnMetadata.builder()
+                .name("col_" + c)
+                .label("col_" + c)
+                .typeName(type)
+                .length(type.equals("varchar") ? 256 : 0)
+                .precision(type.equals("numeric") ? 18 : 0)
+                .scale(type.equals("numeric") ? 2 : 0)
+                .nullable(1)
+                .isCaseSensitive(type.equals("varchar"))
+                .isSigned(!type.equals("varchar") && !type.equals("bool"))
+                .isCurrency(false)
+                .schemaName(schema)
+                .tableName(table)
+                .build();
+    }
+
+    private List<String> schemas(String pattern) {
+        Pattern p = like(pattern);
+        List<String> schemas = new ArrayList<>();
+        for (int i = 0; i < this.settings.schemas; i++) {
+            String name = i == 0 ? "public" : "schema_" + i;
+            if (p.matcher(name).matches())
+                schemas.add(name);
+        }
+        return schemas;
+    }
+
+    /**
+     * sql LIKE pattern to regex, % is any run and _ any single character, \ escapes
+     */
+    static Pattern like(String pattern) {
+        if (pattern == null)
+            return Pattern.compile(".*", Pattern.DOTALL);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length())
+                sb.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+            else if (c == '%')
+                sb.append(".*");
+            else if (c == '_')
+                sb.append('.');
+            else
+                sb.append(Pattern.quote(String.valueOf(c)));
+        }
+        return Pattern.compile(sb.toString(), Pattern.DOTALL);
+    }
+
+    private <T> List<T> page(List<T> all, int from, Integer maxResults) {
+        int size = maxResults == null || maxResults <= 0 ? this.settings.pageSize : maxResults;
+        return all.subList(Math.min(from, all.size()), Math.min(all.size(), from + size));
+    }
+
+    private static String next(int from, int size, int total) {
+        return from + size < total ? Integer.toString(from + size) : null;
+    }
+
+    private static int token(String token) {
+        try {
+            return token == null ? 0 : Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw validation(String.format("invalid next token %s", token));
+        }
+    }
+
+    private static ValidationException validation(String message) {
+        return ValidationException.builder().message(message).build();
+    }
+
+    static String normalize(String sql) {
+        String s = sql.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return s.endsWith(";") ? s.substring(0, s.length() - 1).trim() : s;
+    }
+
+    /**
+     * @return the number of value tuples of an {@code INSERT ... VALUES (..),(..)}, 0 if there are none
+     */
+    static long countInsertRows(String sql) {
+        int values = sql.toLowerCase(Locale.ROOT).indexOf("values");
+        if (values < 0)
+            return 0;
+        long rows = 0;
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = values + 6; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'')
+                quoted = !quoted;
+            else if (!quoted && c == '(' && depth++ == 0)
+                rows++;
+            else if (!quoted && c == ')')
+                depth--;
+        }
+        return rows;
+    }
+
+    private static final class Registered {
+        final List<ColumnMetadata> columns;
+        final List<List<Field>> records;
+
+        Registered(List<ColumnMetadata> columns, List<List<Field>> records) {
+            this.columns = columns;
+            this.records = records;
+        }
+    }
+
+    /**
+     * one statement of a batch, times are offsets from the submission in milliseconds
+     */
+    private static final class Sub {
+        final String sql;
+        final long start;
+        final long end;
+        final boolean fail;
+        final boolean hasResultSet;
+        final long rows;
+        final List<ColumnMetadata> columns;
+        final Registered registered;
+
+        Sub(String sql, long start, long end, boolean fail, boolean hasResultSet, long rows, List<ColumnMetadata> columns, Registered registered) {
+            this.sql = sql;
+            this.start = start;
+            this.end = end;
+            this.fail = fail;
+            this.hasResultSet = hasResultSet;
+            this.rows = rows;
+            this.columns = columns;
+            this.registered = registered;
+        }
+    }
+
+    private final class SimStatement {
+        final String id = UUID.randomUUID().toString();
+        final long created = System.currentTimeMillis();
+        final long queryId = queryIds.incrementAndGet();
+        final String name;
+        final boolean batch;
+        final long queue;
+        final Sub[] subs;
+        // index of the failing statement, -1 if none fails
+        final int failed;
+        // offset at which the statement terminates unless cancelled before
+        final long end;
+        // offset of the cancel request, -1 if never cancelled, guarded by this
+        long cancelledAt = -1;
+
+        SimStatement(List<String> sqls, boolean batch, String name) {
+            this.name = name;
+            this.batch = batch;
+            this.queue = Math.max(0, settings.queueLatency.sample(random));
+            this.subs = new Sub[sqls.size()];
+            long t = this.queue;
+            int failed = -1;
+            for (int i = 0; i < this.subs.length; i++) {
+                String sql = sqls.get(i);
+                long start = t;
+                // statements after a failure never run
+                if (failed < 0)
+                    t += Math.max(0, settings.executionLatency.sample(random));
+                boolean fail = failed < 0 && settings.failureRate > 0 && random.nextDouble() < settings.failureRate;
+                if (fail)
+                    failed = i;
+                Registered r = registered.get(normalize(sql));
+                SqlMatcher m = new SqlMatcher(sql);
+                if (r != null)
+                    this.subs[i] = new Sub(sql, start, t, fail, true, r.records.size(), r.columns, r);
+                else if (m.isQuery())
+                    this.subs[i] = new Sub(sql, start, t, fail, true, settings.resultRows, resultColumns(), null);
+                else if (m.isInsert())
+                    this.subs[i] = new Sub(sql, start, t, fail, false, countInsertRows(sql), Collections.emptyList(), null);
+                else if (m.isDml())
+                    this.subs[i] = new Sub(sql, start, t, fail, false, settings.resultRows, Collections.emptyList(), null);
+                else
+                    this.subs[i] = new Sub(sql, start, t, fail, false, 0, Collections.emptyList(), null);
+            }
+            this.failed = failed;
+            this.end = failed >= 0 ? this.subs[failed].end : t;
+        }
+
+        synchronized long abortAt() {
+            return this.cancelledAt >= 0 && this.cancelledAt < this.end ? this.cancelledAt : -1;
+        }
+
+        boolean isTerminal(long now) {
+            StatusString s = status(now);
+            return s == StatusString.FINISHED || s == StatusString.FAILED || s == StatusString.ABORTED;
+        }
+
+        StatusString status(long now) {
+            long t = now - this.created;
+            long abort = abortAt();
+            if (abort >= 0 && t >= abort)
+                return StatusString.ABORTED;
+            if (t < this.queue / 2)
+                return StatusString.SUBMITTED;
+            if (t < this.queue)
+                return StatusString.PICKED;
+            if (t < this.end)
+                return StatusString.STARTED;
+            return this.failed >= 0 ? StatusString.FAILED : StatusString.FINISHED;
+        }
+
+        StatementStatusString subStatus(int i, long now) {
+            long t = now - this.created;
+            long abort = abortAt();
+            Sub sub = this.subs[i];
+            if (this.failed >= 0 && i > this.failed)
+                return StatementStatusString.ABORTED;
+            if (abort >= 0 && t >= abort && abort < sub.end)
+                return StatementStatusString.ABORTED;
+            if (t < sub.start)
+                return StatementStatusString.SUBMITTED;
+            if (t < sub.end)
+                return StatementStatusString.STARTED;
+            return sub.fail ? StatementStatusString.FAILED : StatementStatusString.FINISHED;
+        }
+
+        long updatedAt(long now) {
+            long abort = abortAt();
+            long t = now - this.created;
+            long last = abort >= 0 ? Math.min(abort, this.end) : this.end;
+            return this.created + Math.min(t, last);
+        }
+
+        List<String> sqls() {
+            List<String> sqls = new ArrayList<>(this.subs.length);
+            for (Sub s : this.subs)
+                sqls.add(s.sql);
+            return sqls;
+        }
+
+        DescribeStatementResponse describe(long now) {
+            StatusString status = status(now);
+            boolean done = status == StatusString.FINISHED;
+            Sub last = this.subs[this.subs.length - 1];
+            DescribeStatementResponse.Builder b = DescribeStatementResponse.builder()
+                    .id(this.id)
+                    .status(status)
+                    .createdAt(Instant.ofEpochMilli(this.created))
+                    .updatedAt(Instant.ofEpochMilli(updatedAt(now)))
+                    .redshiftQueryId(this.batch ? 0L : this.queryId)
+                    .queryString(this.batch ? null : last.sql)
+                    .hasResultSet(!this.batch && last.hasResultSet)
+                    .duration(done ? (this.end - this.queue) * 1_000_000 : -1L)
+                    .resultRows(done && !this.batch ? last.rows : -1L)
+                    .resultSize(done && !this.batch && last.hasResultSet ? last.rows * 64 : -1L)
+                    .error(status == StatusString.FAILED ? "ERROR: simulated failure" : null);
+            if (this.batch) {
+                List<SubStatementData> subs = new ArrayList<>(this.subs.length);
+                for (int i = 0; i < this.subs.length; i++)
+                    subs.add(subData(i, now));
+                b.subStatements(subs);
+            }
+            return b.build();
+        }
+
+        DescribeStatementResponse describeSub(int i, long now) {
+            SubStatementData d = subData(i, now);
+            StatusString status = StatusString.fromValue(d.statusAsString());
+            return DescribeStatementResponse.builder()
+                    .id(d.id())
+                    .status(status)
+                    .createdAt(d.createdAt())
+                    .updatedAt(d.updatedAt())
+                    .redshiftQueryId(d.redshiftQueryId())
+                    .queryString(d.queryString())
+                    .hasResultSet(d.hasResultSet())
+                    .duration(d.duration())
+                    .resultRows(d.resultRows())
+                    .resultSize(d.resultSize())
+                    .error(d.error())
+                    .build();
+        }
+
+        SubStatementData subData(int i, long now) {
+            Sub sub = this.subs[i];
+            StatementStatusString status = subStatus(i, now);
+            boolean done = status == StatementStatusString.FINISHED;
+            long t = now - this.created;
+            return SubStatementData.builder()
+                    .id(this.id + ":" + (i + 1))
+                    .status(status)
+                    .createdAt(Instant.ofEpochMilli(this.created))
+                    .updatedAt(Instant.ofEpochMilli(this.created + Math.min(t, sub.end)))
+                    .redshiftQueryId(this.queryId * 100 + i)
+                    .queryString(sub.sql)
+                    .hasResultSet(sub.hasResultSet)
+                    .duration(done ? (sub.end - sub.start) * 1_000_000 : -1L)
+                    .resultRows(done ? sub.rows : -1L)
+                    .resultSize(done && sub.hasResultSet ? sub.rows * 64 : -1L)
+                    .error(status == StatementStatusString.FAILED ? "ERROR: simulated failure" : null)
+                    .build();
+        }
+    }
+
+    /**
+     * classifies a statement by its first keyword
+     */
+    private static final class SqlMatcher {
+        final String word;
+
+        SqlMatcher(String sql) {
+            Matcher m = WORD.matcher(sql);
+            this.word = m.find() ? m.group(1).toLowerCase(Locale.ROOT) : "";
+        }
+
+        boolean isQuery() {
+            switch (this.word) {
+                case "select":
+                case "with":
+                case "show":
+                case "values":
+                case "explain":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        boolean isInsert() {
+            return this.word.equals("insert");
+        }
+
+        boolean isDml() {
+            return this.word.equals("update") || this.word.equals("delete") || this.word.equals("copy") || this.word.equals("merge");
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package dev.chrisdd.redshiftdata.simulator;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Knobs of {@link RedshiftDataSimulator}. With {@code clientFactory=simulator} they are read from the
+ * {@code redshiftdata.simulator.*} system properties, url parameters and connection properties of the same
+ * name override them for that connection.
+ */
+public class SimulatorSettings {
+    public static final String PREFIX = "redshiftdata.simulator.";
+
+    Latency callLatency = Latency.NONE;
+    Latency queueLatency = Latency.NONE;
+    Latency executionLatency = Latency.parse("lognormal:100:0.5");
+    int pageSize = 1000;
+    int resultRows = 100;
+    int resultColumns = 4;
+    double throttleRate;
+    double failureRate;
+    int maxActiveStatements = 500;
+    int schemas = 2;
+    int tablesPerSchema = 20;
+    int columnsPerTable = 8;
+    long seed = 42;
+
+    public static SimulatorSettings fromSystemProperties() {
+        return fromProperties(properties(new Properties()));
+    }
+
+    /**
+     * @return the {@code redshiftdata.simulator.*} system properties overridden by the given connection ones,
+     * sorted by name so equal settings give equal maps
+     */
+    public static Map<String, String> properties(Properties connection) {
+        Map<String, String> properties = new TreeMap<>();
+        for (Properties p : new Properties[]{System.getProperties(), connection}) {
+            for (String name : p.stringPropertyNames()) {
+                if (name.startsWith(PREFIX))
+                    properties.put(name, p.getProperty(name));
+            }
+        }
+        return properties;
+    }
+
+    public static SimulatorSettings fromProperties(Map<String, String> properties) {
+        SimulatorSettings s = new SimulatorSettings();
+        String v;
+        if ((v = properties.get(PREFIX + "callLatency")) != null) s.setCallLatency(Latency.parse(v));
+        if ((v = properties.get(PREFIX + "queueLatency")) != null) s.setQueueLatency(Latency.parse(v));
+        if ((v = properties.get(PREFIX + "executionLatency")) != null) s.setExecutionLatency(Latency.parse(v));
+        if ((v = properties.get(PREFIX + "pageSize")) != null) s.setPageSize(Integer.parseInt(v));
+        if ((v = properties.get(PREFIX + "resultRows")) != null) s.setResultRows(Integer.parseInt(v));
+        if ((v = properties.get(PREFIX + "resultColumns")) != null) s.setResultColumns(Integer.parseInt(v));
+        if ((v = properties.get(PREFIX + "throttleRate")) != null) s.setThrottleRate(Double.parseDouble(v));
+        if ((v = properties.get(PREFIX + "failureRate")) != null) s.setFailureRate(Double.parseDouble(v));
+        if ((v = properties.get(PREFIX + "maxActiveStatements")) != null) s.setMaxActiveStatements(Integer.parseInt(v));
+        if ((v = properties.get(PREFIX + "schemas")) != null) s.setSchemas(Integer.parseInt(v));
+        if ((v = properties.get(PREFIX + "tablesPerSchema")) != null) s.setTablesPerSchema(Integer.parseInt(v));
+        if ((v = properties.get(PREFIX + "columnsPerTable")) != null) s.setColumnsPerTable(Integer.parseInt(v));
+        if ((v = properties.get(PREFIX + "seed")) != null) s.setSeed(Long.parseLong(v));
+        return s;
+    }
+
+    public Latency getCallLatency() {
+        return callLatency;
+    }
+
+    /**
+     * @param callLatency round trip of every api call
+     */
+    public void setCallLatency(Latency callLatency) {
+        this.callLatency = callLatency;
+    }
+
+    public Latency getQueueLatency() {
+        return queueLatency;
+    }
+
+    /**
+     * @param queueLatency time a statement spends SUBMITTED/PICKED before it starts
+     */
+    public void setQueueLatency(Latency queueLatency) {
+        this.queueLatency = queueLatency;
+    }
+
+    public Latency getExecutionLatency() {
+        return executionLatency;
+    }
+
+    /**
+     * @param executionLatency time a statement, or each statement of a batch, spends STARTED
+     */
+    public void setExecutionLatency(Latency executionLatency) {
+        this.executionLatency = executionLatency;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @param pageSize rows per GetStatementResult page and entries per page of the list/describe calls
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getResultRows() {
+        return resultRows;
+    }
+
+    /**
+     * @param resultRows rows returned by queries that have no registered result
+     */
+    public void setResultRows(int resultRows) {
+        this.resultRows = resultRows;
+    }
+
+    public int getResultColumns() {
+        return resultColumns;
+    }
+
+    public void setResultColumns(int resultColumns) {
+        this.resultColumns = resultColumns;
+    }
+
+    public double getThrottleRate() {
+        return throttleRate;
+    }
+
+    /**
+     * @param throttleRate share of api calls rejected with a ThrottlingException, 0 to 1
+     */
+    public void setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    /**
+     * @param failureRate share of statements ending FAILED, 0 to 1
+     */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public int getMaxActiveStatements() {
+        return maxActiveStatements;
+    }
+
+    /**
+     * @param maxActiveStatements unfinished statements allowed at once, like the service quota, 0 for no limit
+     */
+    public void setMaxActiveStatements(int maxActiveStatements) {
+        this.maxActiveStatements = maxActiveStatements;
+    }
+
+    public int getSchemas() {
+        return schemas;
+    }
+
+    public void setSchemas(int schemas) {
+        this.schemas = schemas;
+    }
+
+    public int getTablesPerSchema() {
+        return tablesPerSchema;
+    }
+
+    public void setTablesPerSchema(int tablesPerSchema) {
+        this.tablesPerSchema = tablesPerSchema;
+    }
+
+    public int getColumnsPerTable() {
+        return columnsPerTable;
+    }
+
+    public void setColumnsPerTable(int columnsPerTable) {
+        this.columnsPerTable = columnsPerTable;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,58 @@
+package dev.chrisdd.redshiftdata;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedshiftCatalogCacheTest {
+    private static final String URL = "jdbc:redshiftdata:@test/dev?clientFactory=simulator&catalogCacheTtl=";
+
+    @AfterEach
+    void clear() {
+        RedshiftCatalogCache.getInstance().clear();
+    }
+
+    private static Set<String> tables(String ttl, String schemaPattern, String tablePattern) {
+        return assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            Set<String> tables = new TreeSet<>();
+            try (Connection conn = new RedshiftDriver().connect(URL + ttl, new Properties());
+                 ResultSet rs = conn.getMetaData().getColumns(null, schemaPattern, tablePattern, "%")) {
+                while (rs.next())
+                    tables.add(rs.getString("TABLE_SCHEM") + "." + rs.getString("TABLE_NAME"));
+            }
+            return tables;
+        });
+    }
+
+    @Test
+    void underscoreNameIsDescribedWithoutWaitingOnItself() {
+        for (String ttl : new String[]{"0", "60000"}) {
+            assertEquals(Collections.singleton("public.table_1"), tables(ttl, "public", "table_1"));
+            assertEquals(Collections.singleton("public.table_1"), tables(ttl, "public", "table_1"));
+        }
+    }
+
+    @Test
+    void escapedUnderscoreIsExact() {
+        assertEquals(Collections.singleton("public.table_1"), tables("60000", "public", "table\\_1"));
+    }
+
+    @Test
+    void patternDescribesEveryMatchingTable() {
+        for (String ttl : new String[]{"0", "60000"}) {
+            Set<String> tables = tables(ttl, "public", "table_1%");
+            assertEquals(11, tables.size());
+            assertTrue(tables.contains("public.table_1"));
+            assertTrue(tables.contains("public.table_19"));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package dev.chrisdd.redshiftdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedshiftDateTimeParserTest {
+
+    private static LocalDateTime localDateTime(String s) throws SQLException {
+        char[] b = s.toCharArray();
+        return RedshiftDateTimeParser.toLocalDateTime(b, 0, b.length);
+    }
+
+    private static OffsetDateTime offsetDateTime(String s) throws SQLException {
+        char[] b = s.toCharArray();
+        return RedshiftDateTimeParser.toOffsetDateTime(b, 0, b.length);
+    }
+
+    private static Timestamp timestamp(String s) throws SQLException {
+        char[] b = s.toCharArray();
+        return RedshiftDateTimeParser.toTimestamp(b, 0, b.length);
+    }
+
+    @Test
+    void dates() throws SQLException {
+        for (String s : new String[]{"2023-10-23", "1970-01-01", "1969-12-31", "2000-02-29", "2024-02-29", "0001-01-01", "9999-12-31"}) {
+            char[] b = s.toCharArray();
+            LocalDate expected = LocalDate.parse(s);
+            assertEquals(expected.toEpochDay(), RedshiftDateTimeParser.epochDay(b, 0, b.length), s);
+            assertEquals(expected.atStartOfDay(), localDateTime(s), s);
+        }
+        char[] b = "2023-10-23".toCharArray();
+        assertEquals(LocalDate.of(2023, 10, 23), RedshiftDateTimeParser.toDate(b, 0, b.length).toLocalDate());
+    }
+
+    @Test
+    void timestamps() throws SQLException {
+        String s = "2023-10-23 09:26:38.779304";
+        LocalDateTime expected = LocalDateTime.parse(s.replace(' ', 'T'));
+        assertEquals(expected, localDateTime(s));
+        assertEquals(expected, localDateTime(s.replace(' ', 'T')));
+        assertEquals(Timestamp.valueOf(expected), timestamp(s));
+    }
+
+    @Test
+    void everyFractionLength() throws SQLException {
+        String digits = "123456789";
+        for (int k = 0; k <= 9; k++) {
+            String s = "2023-10-23 09:26:38" + (k == 0 ? "" : "." + digits.substring(0, k));
+            LocalDateTime expected = LocalDateTime.parse(s.replace(' ', 'T')).truncatedTo(ChronoUnit.MICROS);
+            assertEquals(expected, localDateTime(s), s);
+            assertEquals(expected.toLocalTime(), LocalTime.ofNanoOfDay(microsOfDay(s) * 1000), s);
+        }
+    }
+
+    private static long microsOfDay(String s) throws SQLException {
+        char[] b = s.toCharArray();
+        return RedshiftDateTimeParser.microsOfDay(b, 0, b.length);
+    }
+
+    @Test
+    void offsets() throws SQLException {
+        for (String offset : new String[]{"Z", "+00", "+02", "-05", "+05:30", "-03:30", "+0530", "-0945", "+05:30:15", "-03:30:45"}) {
+            String s = "2023-10-23 09:26:38.5" + offset;
+            OffsetDateTime expected = OffsetDateTime.of(LocalDateTime.of(2023, 10, 23, 9, 26, 38, 500_000_000), ZoneOffset.of(offset));
+            assertEquals(expected, offsetDateTime(s), s);
+            assertEquals(Timestamp.from(expected.toInstant()), timestamp(s), s);
+            char[] b = s.toCharArray();
+            assertEquals(ChronoUnit.MICROS.between(OffsetDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC), expected),
+                    RedshiftDateTimeParser.epochMicros(b, 0, b.length), s);
+        }
+    }
+
+    @Test
+    void timeWithOffset() throws SQLException {
+        assertEquals(LocalTime.of(9, 26, 38, 779_304_000).toNanoOfDay() / 1000, microsOfDay("09:26:38.779304+00"));
+        char[] b = "09:26:38+02".toCharArray();
+        assertEquals(7200, RedshiftDateTimeParser.offsetSeconds(b, 0, b.length));
+        assertEquals(LocalTime.of(9, 26, 38), RedshiftDateTimeParser.toTime(b, 0, b.length).toLocalTime());
+    }
+
+    @Test
+    void withoutOffset() throws SQLException {
+        char[] b = "2023-10-23 09:26:38".toCharArray();
+        assertEquals(RedshiftDateTimeParser.NO_OFFSET, RedshiftDateTimeParser.offsetSeconds(b, 0, b.length));
+        assertEquals(LocalDateTime.of(2023, 10, 23, 9, 26, 38).atOffset(ZoneOffset.UTC), offsetDateTime("2023-10-23 09:26:38"));
+    }
+
+    @Test
+    void bcDates() throws SQLException {
+        assertEquals(LocalDateTime.of(-43, 3, 15, 10, 0), localDateTime("0044-03-15 10:00:00 BC"));
+        assertEquals(LocalDateTime.of(0, 1, 1, 0, 0), localDateTime("0001-01-01 BC"));
+        // 1 BC is a leap year, 2 BC is not
+        assertEquals(LocalDate.of(0, 2, 29).atStartOfDay(), localDateTime("0001-02-29 BC"));
+        assertThrows(SQLException.class, () -> localDateTime("0002-02-29 BC"));
+        assertEquals(OffsetDateTime.of(LocalDateTime.of(-43, 3, 15, 10, 0, 0, 500_000_000), ZoneOffset.ofHours(2)),
+                offsetDateTime("0044-03-15 10:00:00.5+02 BC"));
+        char[] b = "0044-03-15 BC".toCharArray();
+        assertEquals(LocalDate.of(-43, 3, 15).toEpochDay(), RedshiftDateTimeParser.epochDay(b, 0, b.length));
+    }
+
+    @Test
+    void dayMustExistInTheMonth() {
+        for (String s : new String[]{"2023-02-29", "2023-02-30", "1900-02-29", "2023-04-31", "2023-06-31", "2023-09-31", "2023-11-31", "2023-01-32", "2023-01-00"}) {
+            SQLException e = assertThrows(SQLException.class, () -> {
+                char[] b = s.toCharArray();
+                RedshiftDateTimeParser.epochDay(b, 0, b.length);
+            }, s);
+            assertEquals(s + " is not a date", e.getMessage());
+            assertThrows(SQLException.class, () -> localDateTime(s + " 10:00:00"), s);
+        }
+    }
+
+    @Test
+    void malformed() {
+        for (String s : new String[]{"", "abc", "2023-1-01", "2023-13-01", "23-10-01", "2023-10-23X09:26:38", "2023-10-23 25:00:00",
+                "2023-10-23 09:60:00", "2023-10-23 09:26", "2023-10-23 09:26:38.", "2023-10-23 09:26:38.1234567890",
+                "2023-10-23 09:26:38+1", "2023-10-23 09:26:38+19", "2023-10-23 09:26:38+05:3", "2023-10-23 09:26:38 AD"}) {
+            assertThrows(SQLException.class, () -> offsetDateTime(s), s);
+        }
+    }
+}
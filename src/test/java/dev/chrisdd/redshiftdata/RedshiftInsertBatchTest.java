@@ -0,0 +1,99 @@
+package dev.chrisdd.redshiftdata;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.redshiftdata.model.SqlParameter;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedshiftInsertBatchTest {
+
+    private static SqlParameter p(String name, String value) {
+        return SqlParameter.builder().name(name).value(value).build();
+    }
+
+    private static List<String> names(SqlParameter[] params) {
+        List<String> names = new ArrayList<>();
+        for (SqlParameter p : params)
+            names.add(p.name());
+        return names;
+    }
+
+    @Test
+    void rowsArePackedAndRenumbered() throws SQLException {
+        RedshiftInsertBatch batch = new RedshiftInsertBatch(RedshiftSqlShape.of("insert into t (a, b) values (:a, :b) ;"));
+        List<RedshiftInsertBatch.Chunk> chunks = batch.pack(Arrays.asList(
+                new SqlParameter[]{p("a", "1"), p("b", "x")},
+                new SqlParameter[]{p("b", "y"), p("a", "2")}));
+        assertEquals(1, chunks.size());
+        RedshiftInsertBatch.Chunk chunk = chunks.get(0);
+        assertEquals("insert into t (a, b) values (:1, :2),(:3, :4) ;", chunk.sql);
+        assertEquals(2, chunk.rows);
+        assertEquals(Arrays.asList("1", "2", "3", "4"), names(chunk.parameters));
+        assertEquals("y", chunk.parameters[3].value());
+    }
+
+    @Test
+    void repeatedNameIsBoundEveryTime() throws SQLException {
+        RedshiftInsertBatch batch = new RedshiftInsertBatch(RedshiftSqlShape.of("insert into t values (:a, :a || 'x')"));
+        RedshiftInsertBatch.Chunk chunk = batch.pack(Arrays.<SqlParameter[]>asList(new SqlParameter[]{p("a", "v")})).get(0);
+        assertEquals("insert into t values (:1, :2 || 'x')", chunk.sql);
+        assertEquals(2, chunk.parameters.length);
+    }
+
+    @Test
+    void nullAndEmptyValuesAreWrittenAsLiterals() throws SQLException {
+        RedshiftInsertBatch batch = new RedshiftInsertBatch(RedshiftSqlShape.of("insert into t values (:a, :b, ':c')"));
+        RedshiftInsertBatch.Chunk chunk = batch.pack(Arrays.<SqlParameter[]>asList(
+                new SqlParameter[]{SqlParameter.builder().name("a").build(), p("b", "")},
+                new SqlParameter[]{p("a", "1"), p("b", "2")})).get(0);
+        assertEquals("insert into t values (NULL, '', ':c'),(:1, :2, ':c')", chunk.sql);
+        assertEquals(Arrays.asList("1", "2"), names(chunk.parameters));
+    }
+
+    @Test
+    void missingValueFails() {
+        RedshiftInsertBatch batch = new RedshiftInsertBatch(RedshiftSqlShape.of("insert into t values (:a, :b)"));
+        assertThrows(SQLException.class, () -> batch.pack(Arrays.<SqlParameter[]>asList(new SqlParameter[]{p("a", "1")})));
+    }
+
+    @Test
+    void returningIsNotBatched() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RedshiftInsertBatch(RedshiftSqlShape.of("insert into t values (:a) returning id")));
+    }
+
+    @Test
+    void chunksStayWithinTheLimits() throws SQLException {
+        RedshiftInsertBatch batch = new RedshiftInsertBatch(RedshiftSqlShape.of("insert into t values (:a, :b, :c, :d)"));
+        List<SqlParameter[]> rows = new ArrayList<>();
+        for (int r = 0; r < 20_000; r++)
+            rows.add(new SqlParameter[]{p("a", "1"), p("b", "2"), p("c", "3"), p("d", "4")});
+        List<RedshiftInsertBatch.Chunk> chunks = batch.pack(rows);
+        assertTrue(chunks.size() > 1);
+        int total = 0;
+        for (RedshiftInsertBatch.Chunk chunk : chunks) {
+            assertTrue(chunk.sql.getBytes(StandardCharsets.UTF_8).length <= RedshiftInsertBatch.MAX_SQL_BYTES);
+            assertTrue(chunk.parameters.length <= RedshiftInsertBatch.MAX_PARAMETERS);
+            assertEquals(4 * chunk.rows, chunk.parameters.length);
+            assertEquals("1", chunk.parameters[0].name());
+            assertEquals(String.valueOf(chunk.parameters.length), chunk.parameters[chunk.parameters.length - 1].name());
+            total += chunk.rows;
+        }
+        assertEquals(rows.size(), total);
+    }
+
+    @Test
+    void singleRowInlinesLiterals() {
+        RedshiftSqlShape shape = RedshiftSqlShape.of("update t set a = :a where b = :b");
+        RedshiftInsertBatch.Chunk chunk = RedshiftInsertBatch.single(shape,
+                new SqlParameter[]{SqlParameter.builder().name("a").build(), p("b", "1")});
+        assertEquals("update t set a = NULL where b = :b", chunk.sql);
+        assertEquals(Arrays.asList("b"), names(chunk.parameters));
+    }
+}
@@ -0,0 +1,106 @@
+package dev.chrisdd.redshiftdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedshiftSqlShapeTest {
+
+    @Test
+    void namedPlaceholders() {
+        RedshiftSqlShape shape = RedshiftSqlShape.of("select * from t where a = :a and b = :b_2 or c = :a");
+        assertEquals("select", shape.getKeyword());
+        assertTrue(shape.isQuery());
+        assertEquals(Arrays.asList("a", "b_2", "a"), shape.getPlaceholders());
+        assertEquals(Arrays.asList("a", "b_2"), shape.getParameterNames());
+        assertEquals(26, shape.getPlaceholderStart(0));
+        assertEquals(28, shape.getPlaceholderEnd(0));
+    }
+
+    @Test
+    void numberedNamesKeepTheirIndex() {
+        assertEquals(Arrays.asList("1", "2"), RedshiftSqlShape.of("select :2, :1").getParameterNames());
+        assertEquals(Arrays.asList("a", "2", "b"), RedshiftSqlShape.of("select :2, :a, :b, :2").getParameterNames());
+        assertEquals(Arrays.asList("x", "2"), RedshiftSqlShape.of("select :x, :2").getParameterNames());
+    }
+
+    @Test
+    void skippedNumberIsRejected() {
+        assertEquals(Arrays.asList("1", "2", "3"), RedshiftSqlShape.of("select :3, :1").getParameterNames());
+        assertThrows(SQLException.class, () -> RedshiftSqlShape.ofPrepared("select :3, :1"));
+    }
+
+    @Test
+    void castIsNotAPlaceholder() {
+        RedshiftSqlShape shape = RedshiftSqlShape.of("select :a::int, b::varchar from t");
+        assertEquals(Collections.singletonList("a"), shape.getPlaceholders());
+    }
+
+    @Test
+    void quotedTextAndCommentsAreSkipped() {
+        RedshiftSqlShape shape = RedshiftSqlShape.of("select ':a', 'it''s :b', \":c\" -- :d\n"
+                + "/* :e ? */ from t where x = :f");
+        assertEquals(Collections.singletonList("f"), shape.getPlaceholders());
+    }
+
+    @Test
+    void keywordAfterCommentsAndParentheses() {
+        assertEquals("with", RedshiftSqlShape.of("-- note\n/* x */ (with q as (select 1) select * from q)").getKeyword());
+        assertFalse(RedshiftSqlShape.of("update t set a = :a").isQuery());
+        assertEquals("", RedshiftSqlShape.of("  ").getKeyword());
+    }
+
+    @Test
+    void singleRowInsert() {
+        RedshiftSqlShape shape = RedshiftSqlShape.of("insert into t (a, b) values (:a, lower(:b));");
+        assertTrue(shape.isSingleRowInsert());
+        assertEquals("(:a, lower(:b))", shape.getSql().substring(shape.getValuesStart(), shape.getValuesEnd()));
+    }
+
+    @Test
+    void notASingleRowInsert() {
+        assertFalse(RedshiftSqlShape.of("insert into t values (:a) returning id").isSingleRowInsert());
+        assertFalse(RedshiftSqlShape.of("insert into t values (:a), (:b)").isSingleRowInsert());
+        assertFalse(RedshiftSqlShape.of("insert into t select :a").isSingleRowInsert());
+        assertFalse(RedshiftSqlShape.of("insert into t values (1) on conflict do nothing").isSingleRowInsert());
+        assertFalse(RedshiftSqlShape.of("insert into t (a) values (:a) -- x\n; select :b").isSingleRowInsert());
+        assertFalse(RedshiftSqlShape.of("update t set a = :a").isSingleRowInsert());
+    }
+
+    @Test
+    void quotedValuesAndCommentsInInsert() {
+        RedshiftSqlShape shape = RedshiftSqlShape.of("insert into t values (:a, ')', '(:x') /* (:y) */ -- ;\n");
+        assertTrue(shape.isSingleRowInsert());
+        assertEquals(Collections.singletonList("a"), shape.getPlaceholders());
+    }
+
+    @Test
+    void questionMarksBecomePositional() throws SQLException {
+        RedshiftSqlShape shape = RedshiftSqlShape.ofPrepared("select * from t where a = ? and b = ?and c = '?' -- ?\n");
+        assertEquals("select * from t where a = :1 and b = :2 and c = '?' -- ?\n", shape.getSql());
+        assertEquals(Arrays.asList("1", "2"), shape.getParameterNames());
+    }
+
+    @Test
+    void preparedInsertWithQuestionMarks() throws SQLException {
+        RedshiftSqlShape shape = RedshiftSqlShape.ofPrepared("insert into t values (?, ?)");
+        assertTrue(shape.isSingleRowInsert());
+        assertEquals("insert into t values (:1, :2)", shape.getSql());
+    }
+
+    @Test
+    void questionMarksAndNamesCanNotBeMixed() {
+        assertThrows(SQLException.class, () -> RedshiftSqlShape.ofPrepared("select ? , :a"));
+    }
+
+    @Test
+    void plainShapeKeepsQuestionMarks() {
+        RedshiftSqlShape shape = RedshiftSqlShape.of("select ?");
+        assertEquals("select ?", shape.getSql());
+        assertTrue(shape.getPlaceholders().isEmpty());
+    }
+}